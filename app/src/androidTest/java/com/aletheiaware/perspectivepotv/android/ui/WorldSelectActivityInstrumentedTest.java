@@ -26,8 +26,10 @@ import com.aletheiaware.common.android.utils.CommonAndroidUtils;
 import com.aletheiaware.perspective.utils.PerspectiveUtils;
 import com.aletheiaware.perspectivepotv.android.ui.WorldSelectActivity;
 import com.aletheiaware.perspectivepotv.android.utils.PerspectiveAndroidUtils;
+import com.aletheiaware.perspectivepotv.android.utils.WorldSummary;
 
 import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -55,13 +57,13 @@ public class WorldSelectActivityInstrumentedTest {
     @Test
     public void screenshotPuzzleList() throws Exception {
         final WorldSelectActivity activity = intentsTestRule.launchActivity(new Intent());
-        final IOException[] exception = new IOException[1];
+        final Exception[] exception = new Exception[1];
         activity.runOnUiThread(new Runnable() {
             @Override
             public void run() {
                 try {
-                    activity.onSelect(PerspectiveAndroidUtils.getWorld(activity.getAssets(), PerspectiveUtils.WORLD_TUTORIAL));
-                } catch (IOException e) {
+                    activity.onSelect(WorldSummary.of(PerspectiveAndroidUtils.getWorld(activity.getAssets(), PerspectiveUtils.WORLD_TUTORIAL)));
+                } catch (IOException | NoSuchAlgorithmException e) {
                     exception[0] = e;
                 }
             }
@@ -23,8 +23,8 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.aletheiaware.perspective.PerspectiveProto.World;
 import com.aletheiaware.perspective.utils.PerspectiveUtils;
+import com.aletheiaware.perspectivepotv.android.utils.WorldSummary;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
@@ -39,11 +39,11 @@ public class PuzzleAdapter extends Adapter<PuzzleAdapter.PuzzleViewHolder> {
     }
 
     private final Activity activity;
-    private final World world;
+    private final WorldSummary world;
     private final Callback callback;
     private final int[] stars;
 
-    public PuzzleAdapter(final Activity activity, World world, int[] stars, Callback callback) {
+    public PuzzleAdapter(final Activity activity, WorldSummary world, int[] stars, Callback callback) {
         this.activity = activity;
         this.world = world;
         this.stars = (stars == null) ? new int[world.getPuzzleCount()] : stars;
@@ -24,8 +24,9 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.aletheiaware.common.utils.CommonUtils;
-import com.aletheiaware.perspective.PerspectiveProto.World;
 import com.aletheiaware.perspective.utils.PerspectiveUtils;
+import com.aletheiaware.perspectivepotv.android.utils.WorldProgress;
+import com.aletheiaware.perspectivepotv.android.utils.WorldSummary;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -35,13 +36,14 @@ import java.util.List;
 import java.util.Map;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView.Adapter;
 import androidx.recyclerview.widget.RecyclerView.ViewHolder;
 
 public class WorldAdapter extends Adapter<ViewHolder> {
 
     public interface Callback {
-        void onSelect(World world);
+        void onSelect(WorldSummary world);
         void onBuy(String world);
     }
 
@@ -49,16 +51,36 @@ public class WorldAdapter extends Adapter<ViewHolder> {
     private final List<String> names = new ArrayList<>();
     private final Map<String, Integer> starsMap = new HashMap<>();
     private final Map<String, String> pricesMap = new HashMap<>();
-    private final Map<String, World> worldsMap = new HashMap<>();
+    private final Map<String, WorldSummary> worldsMap = new HashMap<>();
     private final Callback callback;
     private int visible = BuildConfig.DEBUG ? 100 : 1;
+    // The rows being shown, only accessed on the UI thread
+    private List<Item> items = new ArrayList<>();
+    // True while an update is posted but hasn't yet run
+    private boolean updatePending;
 
     public WorldAdapter(Activity activity, Callback callback) {
         this.activity = activity;
         this.callback = callback;
     }
 
-    public synchronized void addWorld(World world, boolean completed, int stars) {
+    public synchronized void addWorld(WorldSummary world, boolean completed, int stars) {
+        putWorld(world, completed, stars);
+        update();
+    }
+
+    /**
+     * Adds a batch of worlds with their progress, updating the list once.
+     */
+    public synchronized void addWorlds(List<WorldSummary> worlds, List<WorldProgress> progress) {
+        for (int i = 0; i < worlds.size(); i++) {
+            WorldProgress p = progress.get(i);
+            putWorld(worlds.get(i), p != null && p.isCompleted(), p == null ? 0 : p.getTotal());
+        }
+        update();
+    }
+
+    private void putWorld(WorldSummary world, boolean completed, int stars) {
         String name = world.getName();
         System.out.println("Adding World: " + name + " " + completed + " " + stars);
         if (!names.contains(name)) {
@@ -69,7 +91,6 @@ public class WorldAdapter extends Adapter<ViewHolder> {
         }
         worldsMap.put(name, world);
         starsMap.put(name, stars);
-        sort();
     }
 
     public synchronized void addWorld(String name, String price) {
@@ -77,10 +98,10 @@ public class WorldAdapter extends Adapter<ViewHolder> {
             names.add(name);
         }
         pricesMap.put(name, price);
-        sort();
+        update();
     }
 
-    private synchronized void sort() {
+    private void sort() {
         // Sort names of free worlds first, then paid worlds second
         Collections.sort(names, new Comparator<String>() {
             @Override
@@ -108,14 +129,67 @@ public class WorldAdapter extends Adapter<ViewHolder> {
                 return Integer.compare(i1, i2);
             }
         });
+    }
+
+    // Posts an update to the UI thread, which takes a snapshot of the visible rows when it runs so a later change is
+    // never overwritten by an earlier one, and updates only the rows that changed
+    private void update() {
+        if (updatePending) {
+            return;
+        }
+        updatePending = true;
         activity.runOnUiThread(new Runnable() {
             @Override
             public void run() {
-                notifyDataSetChanged();
+                final List<Item> next;
+                synchronized (WorldAdapter.this) {
+                    updatePending = false;
+                    next = snapshot();
+                }
+                final List<Item> previous = items;
+                items = next;
+                if (previous.isEmpty() || next.isEmpty()) {
+                    // The empty view is replaced or restored
+                    notifyDataSetChanged();
+                    return;
+                }
+                DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                    @Override
+                    public int getOldListSize() {
+                        return previous.size();
+                    }
+
+                    @Override
+                    public int getNewListSize() {
+                        return next.size();
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                        return previous.get(oldPosition).name.equals(next.get(newPosition).name);
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                        return previous.get(oldPosition).equals(next.get(newPosition));
+                    }
+                }, false).dispatchUpdatesTo(WorldAdapter.this);
             }
         });
     }
 
+    // Sorts the worlds and returns the visible rows
+    private List<Item> snapshot() {
+        sort();
+        List<Item> next = new ArrayList<>();
+        for (int i = 0; i < names.size() && i < visible; i++) {
+            String name = names.get(i);
+            Integer stars = starsMap.get(name);
+            next.add(new Item(name, worldsMap.get(name), stars == null ? 0 : stars, pricesMap.get(name)));
+        }
+        return next;
+    }
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -140,25 +214,19 @@ public class WorldAdapter extends Adapter<ViewHolder> {
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         WorldViewHolder wvh = (WorldViewHolder) holder;
-        if (names.isEmpty()) {
+        if (items.isEmpty()) {
             wvh.setEmptyView();
         } else {
-            String name = names.get(position);
-            World world = worldsMap.get(name);
-            if (world == null) {
-                String price = pricesMap.get(name);
+            Item item = items.get(position);
+            if (item.world == null) {
+                String price = item.price;
                 if (price == null) {
                     price = "?";
                 }
-                wvh.set(name, price);
+                wvh.set(item.name, price);
             } else {
-                int s = 0;
-                Integer stars = starsMap.get(name);
-                if (stars != null) {
-                    s = stars;
-                }
-                int puzzles = world.getPuzzleCount();
-                wvh.set(world, s, puzzles*PerspectiveUtils.MAX_STARS);
+                int puzzles = item.world.getPuzzleCount();
+                wvh.set(item.world, item.stars, puzzles*PerspectiveUtils.MAX_STARS);
             }
         }
     }
@@ -170,10 +238,39 @@ public class WorldAdapter extends Adapter<ViewHolder> {
 
     @Override
     public int getItemCount() {
-        if (names.isEmpty()) {
+        if (items.isEmpty()) {
             return 1;// Empty view
         }
-        return Math.min(visible, names.size());
+        return items.size();
+    }
+
+    // A snapshot of a row
+    private static class Item {
+        final String name;
+        final WorldSummary world;
+        final int stars;
+        final String price;
+
+        Item(String name, WorldSummary world, int stars, String price) {
+            this.name = name;
+            this.world = world;
+            this.stars = stars;
+            this.price = price;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) {
+                return false;
+            }
+            Item i = (Item) o;
+            return name.equals(i.name) && world == i.world && stars == i.stars && (price == null ? i.price == null : price.equals(i.price));
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
     }
 
     static class WorldViewHolder extends ViewHolder {
@@ -185,7 +282,7 @@ public class WorldAdapter extends Adapter<ViewHolder> {
         private final Button itemBuy;
         private String name;
         private String title;
-        private World world;
+        private WorldSummary world;
 
         WorldViewHolder(View view) {
             super(view);
@@ -196,7 +293,7 @@ public class WorldAdapter extends Adapter<ViewHolder> {
             itemBuy = view.findViewById(R.id.world_item_buy);
         }
 
-        void set(World world, int earnedStars, int maxStars) {
+        void set(WorldSummary world, int earnedStars, int maxStars) {
             setWorld(world);
             setName(world.getName());
             setTitle(world.getTitle());
@@ -236,7 +333,7 @@ public class WorldAdapter extends Adapter<ViewHolder> {
             }
         }
 
-        void setWorld(World world) {
+        void setWorld(WorldSummary world) {
             this.world = world;
         }
 
@@ -248,7 +345,7 @@ public class WorldAdapter extends Adapter<ViewHolder> {
             return title;
         }
 
-        World getWorld() {
+        WorldSummary getWorld() {
             return world;
         }
 
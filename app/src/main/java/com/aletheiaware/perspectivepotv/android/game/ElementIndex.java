@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import com.aletheiaware.joy.scene.Scene;
+import com.aletheiaware.joy.scene.Vector;
+import com.aletheiaware.perspective.Perspective;
+import com.aletheiaware.perspective.Perspective.Element;
+import com.aletheiaware.perspectivepotv.android.utils.Trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the elements of a puzzle, built once after the puzzle is imported.
+ *
+ * Positions are the vectors held by the scene, so moving an element updates the index in place.
+ */
+public class ElementIndex {
+
+    public final String[] blockNames;
+    public final Vector[] blocks;
+    public final String[] goalNames;
+    public final Vector[] goals;
+    // Spheres which can be launched (ships) come first, followed by all other spheres
+    public final String[] sphereNames;
+    public final Vector[] spheres;
+    public final int[] sphereCells;
+    public final int shipCount;
+    public final String[] dialogNames;
+    public final Vector[] dialogs;
+    public final VoxelGrid grid;
+
+    private final int[] cell = new int[3];
+
+    private ElementIndex(Perspective perspective, Scene scene) {
+        List<Element> bs = getElements(perspective, "block");
+        blockNames = new String[bs.size()];
+        blocks = new Vector[bs.size()];
+        for (int i = 0; i < blocks.length; i++) {
+            blockNames[i] = bs.get(i).name;
+            blocks[i] = scene.getVector(blockNames[i]);
+        }
+
+        List<Element> gs = getElements(perspective, "goal");
+        goalNames = new String[gs.size()];
+        goals = new Vector[gs.size()];
+        for (int i = 0; i < goals.length; i++) {
+            goalNames[i] = gs.get(i).name;
+            goals[i] = scene.getVector(goalNames[i]);
+        }
+
+        List<String> ships = new ArrayList<>();
+        List<String> others = new ArrayList<>();
+        for (Element s : getElements(perspective, "sphere")) {
+            if (s.name.startsWith("s")) {
+                ships.add(s.name);
+            } else {
+                if (Trace.DEBUG) {
+                    Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_SPHERE_IGNORED, 0, 0, 0, 0, s.name);
+                }
+                others.add(s.name);
+            }
+        }
+        shipCount = ships.size();
+        ships.addAll(others);
+        sphereNames = ships.toArray(new String[0]);
+        spheres = new Vector[sphereNames.length];
+        sphereCells = new int[sphereNames.length * 3];
+        for (int i = 0; i < spheres.length; i++) {
+            spheres[i] = scene.getVector(sphereNames[i]);
+        }
+
+        dialogNames = perspective.dialogs.keySet().toArray(new String[0]);
+        dialogs = new Vector[dialogNames.length];
+        for (int i = 0; i < dialogs.length; i++) {
+            dialogs[i] = scene.getVector(dialogNames[i]);
+        }
+
+        grid = new VoxelGrid((int) perspective.size, this, perspective.linkedPortals);
+        updateSphereCells();
+    }
+
+    // Indexes the given elements without importing a puzzle, the first shipCount spheres are ships
+    ElementIndex(int size, String[] blockNames, Vector[] blocks, String[] goalNames, Vector[] goals, String[] sphereNames, Vector[] spheres, int shipCount, Map<Vector, Vector> portals) {
+        this.blockNames = blockNames;
+        this.blocks = blocks;
+        this.goalNames = goalNames;
+        this.goals = goals;
+        this.sphereNames = sphereNames;
+        this.spheres = spheres;
+        this.sphereCells = new int[spheres.length * 3];
+        this.shipCount = shipCount;
+        this.dialogNames = new String[0];
+        this.dialogs = new Vector[0];
+        grid = new VoxelGrid(size, this, portals);
+        updateSphereCells();
+    }
+
+    public static ElementIndex create(Perspective perspective, Scene scene) {
+        return new ElementIndex(perspective, scene);
+    }
+
+    private static List<Element> getElements(Perspective perspective, String type) {
+        List<Element> elements = perspective.getElements(type);
+        if (elements == null) {
+            return new ArrayList<>();
+        }
+        return elements;
+    }
+
+    /**
+     * Updates the cell of each sphere from its position, called after the spheres have moved.
+     */
+    public void updateSphereCells() {
+        for (int i = 0; i < spheres.length; i++) {
+            grid.toCell(spheres[i], cell);
+            System.arraycopy(cell, 0, sphereCells, i * 3, 3);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+/**
+ * The result of a launch; where each sphere comes to rest, whether the game was won or lost, and how many portals were traversed.
+ */
+public class LaunchOutcome {
+
+    public final int[] axis;
+    public final int[] ends;
+    public final boolean won;
+    public final boolean lost;
+    public final int portals;
+
+    private LaunchOutcome(int[] axis, int[] ends, boolean won, boolean lost, int portals) {
+        this.axis = axis;
+        this.ends = ends;
+        this.won = won;
+        this.lost = lost;
+        this.portals = portals;
+    }
+
+    public static LaunchOutcome of(LaunchTrajectory trajectory) {
+        VoxelGrid grid = trajectory.getGrid();
+        int count = trajectory.getSphereCount();
+        int steps = trajectory.getStepCount();
+        int[] ends = new int[count * 3];
+        int[] cell = new int[3];
+        boolean won = true;
+        boolean lost = false;
+        int portals = 0;
+        for (int i = 0; i < count; i++) {
+            trajectory.getEnd(i, cell);
+            System.arraycopy(cell, 0, ends, i * 3, 3);
+            if (grid.isOutOfBounds(cell[0], cell[1], cell[2], 2)) {
+                // if any spheres are out of bounds - game over
+                lost = true;
+            } else if (grid.getType(cell[0], cell[1], cell[2]) != VoxelGrid.GOAL) {
+                // if all spheres are in the goals - game won
+                won = false;
+            }
+            for (int s = 0; s < steps; s++) {
+                if ((trajectory.getEvents(s, i) & LaunchSimulation.EVENT_PORTAL_TRAVERSED) != 0) {
+                    portals++;
+                }
+            }
+        }
+        return new LaunchOutcome(trajectory.getAxis().clone(), ends, won && !lost, lost, portals);
+    }
+
+    /**
+     * Copies the cell in which the given sphere comes to rest.
+     */
+    public int[] getEnd(int sphere, int[] cell) {
+        System.arraycopy(ends, sphere * 3, cell, 0, 3);
+        return cell;
+    }
+}
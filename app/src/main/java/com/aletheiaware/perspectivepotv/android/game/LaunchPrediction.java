@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import java.util.Arrays;
+
+/**
+ * A copy of the trajectory and outcome of a simulated launch, so it can be animated without simulating it again.
+ */
+public class LaunchPrediction implements LaunchTrajectory {
+
+    public final LaunchOutcome outcome;
+
+    private final VoxelGrid grid;
+    private final int[] axis;
+    // The cells the spheres were launched from
+    private final int[] starts;
+    private final int count;
+    private final int steps;
+    private final int[] startEvents;
+    private final String[] startHits;
+    private final int[] from;
+    private final int[] exit;
+    private final int[] events;
+    private final String[] hits;
+    private final int[] ends;
+
+    private LaunchPrediction(LaunchSimulation simulation, int[] cells) {
+        grid = simulation.getGrid();
+        axis = simulation.getAxis().clone();
+        count = simulation.getSphereCount();
+        steps = simulation.getStepCount();
+        starts = Arrays.copyOf(cells, count * 3);
+        startEvents = new int[count];
+        startHits = new String[count];
+        ends = new int[count * 3];
+        int[] cell = new int[3];
+        for (int i = 0; i < count; i++) {
+            startEvents[i] = simulation.getStartEvents(i);
+            startHits[i] = simulation.getStartHit(i);
+            System.arraycopy(simulation.getEnd(i, cell), 0, ends, i * 3, 3);
+        }
+        from = new int[steps * count * 3];
+        exit = new int[steps * count * 3];
+        events = new int[steps * count];
+        hits = new String[steps * count];
+        for (int s = 0; s < steps; s++) {
+            for (int i = 0; i < count; i++) {
+                int r = s * count + i;
+                System.arraycopy(simulation.getFrom(s, i, cell), 0, from, r * 3, 3);
+                System.arraycopy(simulation.getExit(s, i, cell), 0, exit, r * 3, 3);
+                events[r] = simulation.getEvents(s, i);
+                hits[r] = simulation.getHit(s, i);
+            }
+        }
+        outcome = LaunchOutcome.of(this);
+    }
+
+    /**
+     * Records the launch last simulated, of spheres from the given cells.
+     */
+    public static LaunchPrediction of(LaunchSimulation simulation, int[] cells) {
+        return new LaunchPrediction(simulation, cells);
+    }
+
+    /**
+     * Returns true if this is the launch of the given spheres along the given axis.
+     */
+    public boolean matches(int[] axis, int[] cells, int count) {
+        if (count != this.count) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            if (axis[i] != this.axis[i]) {
+                return false;
+            }
+        }
+        for (int c = 0; c < count * 3; c++) {
+            if (cells[c] != starts[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public VoxelGrid getGrid() {
+        return grid;
+    }
+
+    @Override
+    public int[] getAxis() {
+        return axis;
+    }
+
+    @Override
+    public int getSphereCount() {
+        return count;
+    }
+
+    @Override
+    public int getStepCount() {
+        return steps;
+    }
+
+    @Override
+    public int getStartEvents(int sphere) {
+        return startEvents[sphere];
+    }
+
+    @Override
+    public String getStartHit(int sphere) {
+        return startHits[sphere];
+    }
+
+    @Override
+    public int getEvents(int step, int sphere) {
+        return events[step * count + sphere];
+    }
+
+    @Override
+    public String getHit(int step, int sphere) {
+        return hits[step * count + sphere];
+    }
+
+    @Override
+    public int[] getFrom(int step, int sphere, int[] cell) {
+        System.arraycopy(from, (step * count + sphere) * 3, cell, 0, 3);
+        return cell;
+    }
+
+    @Override
+    public int[] getExit(int step, int sphere, int[] cell) {
+        System.arraycopy(exit, (step * count + sphere) * 3, cell, 0, 3);
+        return cell;
+    }
+
+    @Override
+    public int[] getEnd(int sphere, int[] cell) {
+        System.arraycopy(ends, sphere * 3, cell, 0, 3);
+        return cell;
+    }
+}
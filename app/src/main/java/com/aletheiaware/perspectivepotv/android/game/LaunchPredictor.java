@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Predicts, on a worker thread, the trajectory and outcome of launching along each of the six axes from the current
+ * puzzle state, so a launch can be animated without being simulated on the UI thread.
+ */
+public class LaunchPredictor {
+
+    public static final int[][] AXES = {
+            {1, 0, 0},
+            {-1, 0, 0},
+            {0, 1, 0},
+            {0, -1, 0},
+            {0, 0, 1},
+            {0, 0, -1},
+    };
+
+    private static final int CACHE_SIZE = 4 * AXES.length;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Ring of the most recent predictions, searched in place so a lookup doesn't allocate
+    private final LaunchPrediction[] cache = new LaunchPrediction[CACHE_SIZE];
+    private int next;
+    private LaunchSimulation simulation;
+    private int generation;
+
+    /**
+     * Discards all predictions and prepares to predict launches in the given puzzle.
+     */
+    public synchronized void reset(VoxelGrid grid) {
+        generation++;
+        Arrays.fill(cache, null);
+        next = 0;
+        simulation = new LaunchSimulation(grid);
+    }
+
+    /**
+     * Schedules the prediction of all six launches of the given spheres.
+     */
+    public synchronized void predict(String[] names, int[] cells, int count) {
+        final LaunchSimulation s = simulation;
+        if (s == null) {
+            return;
+        }
+        final int g = generation;
+        final String[] n = Arrays.copyOf(names, count);
+        final int[] c = Arrays.copyOf(cells, count * 3);
+        final int length = count;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int[] axis : AXES) {
+                    synchronized (LaunchPredictor.this) {
+                        if (g != generation) {
+                            return;
+                        }
+                        if (find(axis, c, length) != null) {
+                            continue;
+                        }
+                    }
+                    // Each puzzle has its own simulation, so only this worker uses it
+                    s.simulate(axis, n, c, length);
+                    LaunchPrediction prediction = LaunchPrediction.of(s, c);
+                    synchronized (LaunchPredictor.this) {
+                        if (g != generation) {
+                            return;
+                        }
+                        cache[next] = prediction;
+                        next = (next + 1) % CACHE_SIZE;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the predicted launch of the given spheres along the given axis, or null if it is not yet known.
+     */
+    public synchronized LaunchPrediction getPrediction(int[] axis, int[] cells, int count) {
+        return find(axis, cells, count);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private LaunchPrediction find(int[] axis, int[] cells, int count) {
+        for (LaunchPrediction p : cache) {
+            if (p != null && p.matches(axis, cells, count)) {
+                return p;
+            }
+        }
+        return null;
+    }
+}
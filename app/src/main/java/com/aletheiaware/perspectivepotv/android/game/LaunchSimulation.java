@@ -0,0 +1,384 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import com.aletheiaware.perspectivepotv.android.utils.Trace;
+
+import java.util.Arrays;
+
+/**
+ * Resolves a launch of every sphere ahead of time, as a sequence of steps in which all spheres advance in lock-step.
+ *
+ * In each step every moving sphere attempts to move one cell along the launch axis, and records the events which occur on
+ * arrival. Spheres are processed front-most first, so a line of spheres moves together. The rules are;
+ * - A sphere stops when the cell ahead of it holds a block, or a sphere that has stopped.
+ * - A sphere stops when the cell it would move into, or the exit of the portal it would enter, is held by another sphere.
+ *   If two spheres would enter one portal in the same step, the first to be processed passes through and the other stops.
+ * - A sphere stops in a goal, or when it is well out of bounds.
+ * - Portals can form a loop which spheres would never leave, so the launch ends once the spheres return to a state they
+ *   were in before.
+ *
+ * Cells are in the integer coordinates of the {@link VoxelGrid}, and may lie outside of it once a sphere leaves the puzzle.
+ * Buffers are reused across launches, so a simulation should be created once per puzzle.
+ */
+public class LaunchSimulation implements LaunchTrajectory {
+
+    public static final int EVENT_MOVED = 1;
+    public static final int EVENT_OUTLINE_CROSSED = 1 << 1;
+    public static final int EVENT_OUT_OF_BOUNDS = 1 << 2;
+    public static final int EVENT_GOAL_REACHED = 1 << 3;
+    public static final int EVENT_PORTAL_TRAVERSED = 1 << 4;
+    public static final int EVENT_BLOCK_HIT = 1 << 5;
+    public static final int EVENT_SPHERE_HIT = 1 << 6;
+
+    private final VoxelGrid grid;
+    private final int[] axis = new int[3];
+    private final int[] next = new int[3];
+    private final int[] target = new int[3];
+    // Sphere index + 1 of the sphere in each cell of the grid
+    private final int[] occupancy;
+    private String[] names = new String[0];
+    private int[] current = new int[0];
+    private int[] order = new int[0];
+    // Cells of every sphere at the last checkpoint of the loop detection
+    private int[] checkpoint = new int[0];
+    private boolean[] stopped = new boolean[0];
+    private boolean[] outside = new boolean[0];
+    private int[] startEvents = new int[0];
+    private String[] startHits = new String[0];
+    private int[] from = new int[0];
+    private int[] exit = new int[0];
+    private int[] events = new int[0];
+    private String[] hits = new String[0];
+    private int count;
+    private int steps;
+    private boolean looped;
+
+    public LaunchSimulation(VoxelGrid grid) {
+        this.grid = grid;
+        int size = grid.getSize();
+        occupancy = new int[size * size * size];
+    }
+
+    @Override
+    public VoxelGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Simulates launching the given spheres along the given axis.
+     *
+     * @param axis the launch axis in cell coordinates.
+     * @param names the names of the spheres.
+     * @param cells the starting cell of each sphere, three coordinates per sphere.
+     * @param count the number of spheres.
+     */
+    public void simulate(int[] axis, String[] names, int[] cells, int count) {
+        System.arraycopy(axis, 0, this.axis, 0, 3);
+        ensureSphereCapacity(count);
+        this.count = count;
+        this.steps = 0;
+        this.looped = false;
+        Arrays.fill(occupancy, 0);
+        System.arraycopy(names, 0, this.names, 0, count);
+        System.arraycopy(cells, 0, current, 0, count * 3);
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            stopped[i] = false;
+            outside[i] = false;
+            startEvents[i] = 0;
+            startHits[i] = null;
+            occupy(i);
+        }
+        sortOrder();
+
+        // Spheres already facing an obstacle don't move
+        int moving = count;
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            String hit = getObstacleAhead(i);
+            if (hit != null) {
+                stopped[i] = true;
+                startEvents[i] = getObstacleEvent(i);
+                startHits[i] = hit;
+                moving--;
+            }
+        }
+
+        // Each sphere can pass over every cell, and then fly out of bounds
+        int size = grid.getSize();
+        int limit = count * (occupancy.length + 4 * size);
+        // Find loops with Brent's algorithm; compare each state to a checkpoint taken at steps increasing in powers of two
+        int power = 1;
+        int length = 0;
+        System.arraycopy(current, 0, checkpoint, 0, count * 3);
+        while (moving > 0 && steps < limit) {
+            ensureStepCapacity(steps + 1);
+            int base = steps * count;
+            int stopping = 0;
+            for (int k = 0; k < count; k++) {
+                int i = order[k];
+                if (step(i, base + i)) {
+                    stopping++;
+                }
+            }
+            moving -= stopping;
+            steps++;
+            if (stopping > 0) {
+                // Stopped spheres never move again, so earlier states can't recur
+                power = 1;
+                length = 0;
+                System.arraycopy(current, 0, checkpoint, 0, count * 3);
+            } else if (isCheckpoint()) {
+                looped = true;
+                break;
+            } else if (++length == power) {
+                power *= 2;
+                length = 0;
+                System.arraycopy(current, 0, checkpoint, 0, count * 3);
+            }
+        }
+        if (Trace.DEBUG && moving > 0 && !looped) {
+            Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_LAUNCH_LIMIT, limit, 0, 0, 0, null);
+        }
+    }
+
+    // Moving spheres advance deterministically from their cells, so the launch loops if all cells match the checkpoint
+    private boolean isCheckpoint() {
+        for (int c = 0; c < count * 3; c++) {
+            if (current[c] != checkpoint[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns true if the sphere stopped during this step
+    private boolean step(int i, int record) {
+        int c = i * 3;
+        int r = record * 3;
+        System.arraycopy(current, c, from, r, 3);
+        System.arraycopy(current, c, exit, r, 3);
+        events[record] = 0;
+        hits[record] = null;
+        if (stopped[i]) {
+            return false;
+        }
+        next[0] = current[c] + axis[0];
+        next[1] = current[c + 1] + axis[1];
+        next[2] = current[c + 2] + axis[2];
+        System.arraycopy(next, 0, target, 0, 3);
+        byte type = grid.getType(next[0], next[1], next[2]);
+        if (type == VoxelGrid.PORTAL) {
+            grid.getCell(grid.getPortalDestination(next[0], next[1], next[2]), target);
+        }
+        int other = getSphere(next);
+        if (other < 0) {
+            other = getSphere(target);
+        }
+        if (other >= 0 && other != i) {
+            stopped[i] = true;
+            events[record] = EVENT_SPHERE_HIT;
+            hits[record] = names[other];
+            return true;
+        }
+
+        int e = EVENT_MOVED;
+        if (grid.isOutOfBounds(next[0], next[1], next[2], 1)) {
+            if (!outside[i]) {
+                outside[i] = true;
+                e |= EVENT_OUTLINE_CROSSED;
+            }
+            // Double size so ball is offscreen, well out of bounds
+            if (grid.isOutOfBounds(next[0], next[1], next[2], 4)) {
+                e |= EVENT_OUT_OF_BOUNDS;
+            }
+        }
+        if (type == VoxelGrid.GOAL) {
+            e |= EVENT_GOAL_REACHED;
+        } else if (type == VoxelGrid.PORTAL) {
+            e |= EVENT_PORTAL_TRAVERSED;
+        }
+        vacate(i);
+        System.arraycopy(target, 0, current, c, 3);
+        System.arraycopy(target, 0, exit, r, 3);
+        occupy(i);
+        if ((e & (EVENT_OUT_OF_BOUNDS | EVENT_GOAL_REACHED)) != 0) {
+            stopped[i] = true;
+        } else {
+            String hit = getObstacleAhead(i);
+            if (hit != null) {
+                stopped[i] = true;
+                e |= getObstacleEvent(i);
+                hits[record] = hit;
+            }
+        }
+        events[record] = e;
+        return stopped[i];
+    }
+
+    // Returns the name of the block or stopped sphere directly ahead of the given sphere, or null if the way is clear
+    private String getObstacleAhead(int i) {
+        int c = i * 3;
+        next[0] = current[c] + axis[0];
+        next[1] = current[c + 1] + axis[1];
+        next[2] = current[c + 2] + axis[2];
+        String block = grid.getBlock(next[0], next[1], next[2]);
+        if (block != null) {
+            return block;
+        }
+        int other = getSphere(next);
+        if (other >= 0 && stopped[other]) {
+            return names[other];
+        }
+        return null;
+    }
+
+    private int getObstacleEvent(int i) {
+        int c = i * 3;
+        if (grid.getType(current[c] + axis[0], current[c + 1] + axis[1], current[c + 2] + axis[2]) == VoxelGrid.BLOCK) {
+            return EVENT_BLOCK_HIT;
+        }
+        return EVENT_SPHERE_HIT;
+    }
+
+    // Returns the index of the sphere in the given cell, or -1 if the cell is empty or outside the grid
+    private int getSphere(int[] cell) {
+        int index = grid.getIndex(cell);
+        if (index < 0) {
+            return -1;
+        }
+        return occupancy[index] - 1;
+    }
+
+    private void occupy(int i) {
+        int index = grid.getIndex(current[i * 3], current[i * 3 + 1], current[i * 3 + 2]);
+        if (index >= 0) {
+            occupancy[index] = i + 1;
+        }
+    }
+
+    private void vacate(int i) {
+        int index = grid.getIndex(current[i * 3], current[i * 3 + 1], current[i * 3 + 2]);
+        if (index >= 0 && occupancy[index] == i + 1) {
+            occupancy[index] = 0;
+        }
+    }
+
+    // Sorts spheres front-most along the launch axis first, ties broken by index
+    private void sortOrder() {
+        for (int k = 1; k < count; k++) {
+            int i = order[k];
+            int p = getProjection(i);
+            int j = k - 1;
+            while (j >= 0 && getProjection(order[j]) < p) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = i;
+        }
+    }
+
+    private int getProjection(int i) {
+        int c = i * 3;
+        return current[c] * axis[0] + current[c + 1] * axis[1] + current[c + 2] * axis[2];
+    }
+
+    private void ensureSphereCapacity(int capacity) {
+        if (current.length < capacity * 3) {
+            names = new String[capacity];
+            current = new int[capacity * 3];
+            order = new int[capacity];
+            checkpoint = new int[capacity * 3];
+            stopped = new boolean[capacity];
+            outside = new boolean[capacity];
+            startEvents = new int[capacity];
+            startHits = new String[capacity];
+        }
+    }
+
+    private void ensureStepCapacity(int capacity) {
+        int records = capacity * count;
+        if (events.length < records) {
+            int length = Math.max(records, events.length * 2);
+            from = Arrays.copyOf(from, length * 3);
+            exit = Arrays.copyOf(exit, length * 3);
+            events = Arrays.copyOf(events, length);
+            hits = Arrays.copyOf(hits, length);
+        }
+    }
+
+    @Override
+    public int[] getAxis() {
+        return axis;
+    }
+
+    @Override
+    public int getSphereCount() {
+        return count;
+    }
+
+    @Override
+    public int getStepCount() {
+        return steps;
+    }
+
+    /**
+     * Returns true if the launch ended because the spheres were caught in a loop of portals.
+     */
+    public boolean isLooped() {
+        return looped;
+    }
+
+    @Override
+    public int getStartEvents(int sphere) {
+        return startEvents[sphere];
+    }
+
+    @Override
+    public String getStartHit(int sphere) {
+        return startHits[sphere];
+    }
+
+    @Override
+    public int getEvents(int step, int sphere) {
+        return events[step * count + sphere];
+    }
+
+    @Override
+    public String getHit(int step, int sphere) {
+        return hits[step * count + sphere];
+    }
+
+    @Override
+    public int[] getFrom(int step, int sphere, int[] cell) {
+        System.arraycopy(from, (step * count + sphere) * 3, cell, 0, 3);
+        return cell;
+    }
+
+    @Override
+    public int[] getExit(int step, int sphere, int[] cell) {
+        System.arraycopy(exit, (step * count + sphere) * 3, cell, 0, 3);
+        return cell;
+    }
+
+    @Override
+    public int[] getEnd(int sphere, int[] cell) {
+        System.arraycopy(current, sphere * 3, cell, 0, 3);
+        return cell;
+    }
+}
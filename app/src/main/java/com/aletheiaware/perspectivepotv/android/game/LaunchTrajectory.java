@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+/**
+ * The steps of a launch, as resolved by a {@link LaunchSimulation}.
+ */
+public interface LaunchTrajectory {
+
+    VoxelGrid getGrid();
+
+    int[] getAxis();
+
+    int getSphereCount();
+
+    int getStepCount();
+
+    /**
+     * Returns the events of the given sphere before the launch, either a block or sphere hit if it couldn't move.
+     */
+    int getStartEvents(int sphere);
+
+    String getStartHit(int sphere);
+
+    int getEvents(int step, int sphere);
+
+    /**
+     * Returns the name of the block or sphere hit by the given sphere at the end of the given step, or null.
+     */
+    String getHit(int step, int sphere);
+
+    /**
+     * Copies the cell the given sphere occupies at the start of the given step.
+     */
+    int[] getFrom(int step, int sphere, int[] cell);
+
+    /**
+     * Copies the cell the given sphere occupies at the end of the given step.
+     */
+    int[] getExit(int step, int sphere, int[] cell);
+
+    /**
+     * Copies the cell in which the given sphere comes to rest.
+     */
+    int[] getEnd(int sphere, int[] cell);
+}
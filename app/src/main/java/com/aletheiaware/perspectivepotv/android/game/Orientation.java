@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import com.aletheiaware.joy.scene.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * The 24 rotations of a cube, each an exact integer rotation matrix.
+ *
+ * Orientations are identified by an index into a fixed table, with 0 being the identity. Matrices are row-major, so
+ * applying orientation o to a vector v gives v'[r] = sum of matrix[o][r * 3 + c] * v[c].
+ */
+public class Orientation {
+
+    public static final int COUNT = 24;
+    public static final int IDENTITY = 0;
+
+    // Quarter turns of the view about its x and y axes, the moves a player can make
+    public static final int TURN_X_POSITIVE = 0;
+    public static final int TURN_X_NEGATIVE = 1;
+    public static final int TURN_Y_POSITIVE = 2;
+    public static final int TURN_Y_NEGATIVE = 3;
+    public static final int TURN_COUNT = 4;
+
+    private static final int[][] MATRICES = new int[COUNT][];
+    private static final int[] INVERSES = new int[COUNT];
+    private static final int[][] PRODUCTS = new int[COUNT][COUNT];
+    private static final int[] TURNS = new int[TURN_COUNT];
+
+    static {
+        // Every signed permutation matrix with determinant +1
+        int[][] permutations = {
+                {0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0},
+        };
+        int n = 0;
+        for (int[] p : permutations) {
+            for (int signs = 0; signs < 8; signs++) {
+                int[] m = new int[9];
+                for (int r = 0; r < 3; r++) {
+                    m[r * 3 + p[r]] = ((signs >> r) & 1) == 0 ? 1 : -1;
+                }
+                if (getDeterminant(m) == 1) {
+                    MATRICES[n++] = m;
+                }
+            }
+        }
+        int[] product = new int[9];
+        for (int a = 0; a < COUNT; a++) {
+            for (int b = 0; b < COUNT; b++) {
+                multiply(MATRICES[a], MATRICES[b], product);
+                PRODUCTS[a][b] = find(product);
+                if (PRODUCTS[a][b] == IDENTITY) {
+                    INVERSES[a] = b;
+                }
+            }
+        }
+        TURNS[TURN_X_POSITIVE] = find(new int[] {1, 0, 0, 0, 0, -1, 0, 1, 0});
+        TURNS[TURN_X_NEGATIVE] = INVERSES[TURNS[TURN_X_POSITIVE]];
+        TURNS[TURN_Y_POSITIVE] = find(new int[] {0, 0, 1, 0, 1, 0, -1, 0, 0});
+        TURNS[TURN_Y_NEGATIVE] = INVERSES[TURNS[TURN_Y_POSITIVE]];
+    }
+
+    private Orientation() {}
+
+    /**
+     * Returns the orientation nearest to the given rotation.
+     *
+     * The rotation need not be exact, it is matched against every orientation so the result is always valid.
+     */
+    public static int snap(Matrix rotation) {
+        return snap(rotation, createSnapScratch());
+    }
+
+    /**
+     * Returns scratch storage for {@link #snap(Matrix, float[][])}; a basis vector and the three columns of the rotation.
+     */
+    public static float[][] createSnapScratch() {
+        return new float[4][4];
+    }
+
+    /**
+     * Returns the orientation nearest to the given rotation, using the given scratch storage instead of allocating.
+     */
+    public static int snap(Matrix rotation, float[][] scratch) {
+        // Columns of the rotation are the images of the basis vectors
+        float[] basis = scratch[0];
+        for (int c = 0; c < 3; c++) {
+            Arrays.fill(basis, 0);
+            basis[c] = 1;
+            rotation.multiply(basis, scratch[c + 1]);
+        }
+        int best = IDENTITY;
+        float bestScore = -Float.MAX_VALUE;
+        for (int o = 0; o < COUNT; o++) {
+            int[] m = MATRICES[o];
+            float score = 0;
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 3; c++) {
+                    score += m[r * 3 + c] * scratch[c + 1][r];
+                }
+            }
+            if (score > bestScore) {
+                best = o;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the axis of the given vector, a unit vector along its largest component.
+     */
+    public static int[] toAxis(float[] vector, int[] axis) {
+        int major = 0;
+        for (int i = 1; i < 3; i++) {
+            if (Math.abs(vector[i]) > Math.abs(vector[major])) {
+                major = i;
+            }
+        }
+        axis[0] = 0;
+        axis[1] = 0;
+        axis[2] = 0;
+        axis[major] = vector[major] < 0 ? -1 : 1;
+        return axis;
+    }
+
+    /**
+     * Applies the given orientation to the vector in, writing the result to out.
+     */
+    public static int[] apply(int orientation, int[] in, int[] out) {
+        int[] m = MATRICES[orientation];
+        int x = in[0];
+        int y = in[1];
+        int z = in[2];
+        for (int r = 0; r < 3; r++) {
+            out[r] = m[r * 3] * x + m[r * 3 + 1] * y + m[r * 3 + 2] * z;
+        }
+        return out;
+    }
+
+    public static int inverse(int orientation) {
+        return INVERSES[orientation];
+    }
+
+    /**
+     * Returns the orientation of applying b and then a.
+     */
+    public static int multiply(int a, int b) {
+        return PRODUCTS[a][b];
+    }
+
+    /**
+     * Returns the orientation after the given turn of the view.
+     */
+    public static int turn(int orientation, int turn) {
+        return PRODUCTS[TURNS[turn]][orientation];
+    }
+
+    /**
+     * Returns the axis, in puzzle coordinates, that the given view axis points along when the puzzle has the given orientation.
+     */
+    public static int[] getLaunchAxis(int orientation, int[] viewAxis, int[] axis) {
+        return apply(INVERSES[orientation], viewAxis, axis);
+    }
+
+    /**
+     * Returns the orientation with the given matrix, or -1 if it isn't a rotation of the cube.
+     */
+    public static int find(int[] matrix) {
+        for (int o = 0; o < COUNT; o++) {
+            if (Arrays.equals(MATRICES[o], matrix)) {
+                return o;
+            }
+        }
+        return -1;
+    }
+
+    private static void multiply(int[] a, int[] b, int[] out) {
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                out[r * 3 + c] = a[r * 3] * b[c] + a[r * 3 + 1] * b[3 + c] + a[r * 3 + 2] * b[6 + c];
+            }
+        }
+    }
+
+    private static int getDeterminant(int[] m) {
+        return m[0] * (m[4] * m[8] - m[5] * m[7])
+                - m[1] * (m[3] * m[8] - m[5] * m[6])
+                + m[2] * (m[3] * m[7] - m[4] * m[6]);
+    }
+}
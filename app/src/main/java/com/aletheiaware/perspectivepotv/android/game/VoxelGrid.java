@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import com.aletheiaware.joy.scene.Vector;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A dense occupancy grid of the puzzle, indexed by integer cell coordinates.
+ *
+ * Cell (0, 0, 0) is the corner of the puzzle at the most negative coordinates, so a cell coordinate c maps to the
+ * scene coordinate c - (size - 1) / 2.
+ */
+public class VoxelGrid {
+
+    public static final byte EMPTY = 0;
+    public static final byte BLOCK = 1;
+    public static final byte GOAL = 2;
+    public static final byte PORTAL = 3;
+
+    // Positions within a cell are fixed point, with FIXED_ONE being a whole cell
+    public static final int FIXED_SHIFT = 16;
+    public static final int FIXED_ONE = 1 << FIXED_SHIFT;
+
+    private final int size;
+    private final float offset;
+    private final byte[] types;
+    // Block name index for block cells, destination cell index for portal cells, otherwise -1
+    private final int[] links;
+    private final String[] blockNames;
+
+    VoxelGrid(int size, ElementIndex index, Map<Vector, Vector> portals) {
+        this.size = size;
+        this.offset = (size - 1) / 2f;
+        this.types = new byte[size * size * size];
+        this.links = new int[types.length];
+        this.blockNames = index.blockNames;
+        Arrays.fill(links, -1);
+        int[] cell = new int[3];
+        for (int i = 0; i < index.blocks.length; i++) {
+            int c = getIndex(toCell(index.blocks[i], cell));
+            if (c >= 0) {
+                types[c] = BLOCK;
+                links[c] = i;
+            }
+        }
+        for (Vector g : index.goals) {
+            int c = getIndex(toCell(g, cell));
+            if (c >= 0) {
+                types[c] = GOAL;
+            }
+        }
+        if (portals != null) {
+            for (Map.Entry<Vector, Vector> p : portals.entrySet()) {
+                int c = getIndex(toCell(p.getKey(), cell));
+                int destination = getIndex(toCell(p.getValue(), cell));
+                if (c >= 0 && destination >= 0) {
+                    types[c] = PORTAL;
+                    links[c] = destination;
+                }
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Converts the scene coordinates of the given vector into cell coordinates.
+     */
+    public int[] toCell(Vector vector, int[] cell) {
+        cell[0] = Math.round(vector.getX() + offset);
+        cell[1] = Math.round(vector.getY() + offset);
+        cell[2] = Math.round(vector.getZ() + offset);
+        return cell;
+    }
+
+    /**
+     * Converts the given cell coordinates into scene coordinates.
+     */
+    public Vector toVector(int x, int y, int z, Vector vector) {
+        vector.set(x - offset, y - offset, z - offset);
+        return vector;
+    }
+
+    /**
+     * Converts the given cell, advanced by the fixed point fraction of a cell along the given axis, into scene coordinates.
+     */
+    public Vector toVector(int[] cell, int[] axis, int fraction, Vector vector) {
+        float f = fraction / (float) FIXED_ONE;
+        vector.set(cell[0] + axis[0] * f - offset, cell[1] + axis[1] * f - offset, cell[2] + axis[2] * f - offset);
+        return vector;
+    }
+
+    public int getIndex(int x, int y, int z) {
+        if (x < 0 || y < 0 || z < 0 || x >= size || y >= size || z >= size) {
+            return -1;
+        }
+        return (x * size + y) * size + z;
+    }
+
+    public int getIndex(int[] cell) {
+        return getIndex(cell[0], cell[1], cell[2]);
+    }
+
+    public void getCell(int index, int[] cell) {
+        cell[2] = index % size;
+        cell[1] = (index / size) % size;
+        cell[0] = index / (size * size);
+    }
+
+    public byte getType(int x, int y, int z) {
+        int index = getIndex(x, y, z);
+        if (index < 0) {
+            return EMPTY;
+        }
+        return types[index];
+    }
+
+    /**
+     * Returns the name of the block occupying the given cell, or null if there isn't one.
+     */
+    public String getBlock(int x, int y, int z) {
+        int index = getIndex(x, y, z);
+        if (index < 0 || types[index] != BLOCK) {
+            return null;
+        }
+        return blockNames[links[index]];
+    }
+
+    /**
+     * Returns the index of the cell linked to the portal in the given cell, or -1 if there isn't one.
+     */
+    public int getPortalDestination(int x, int y, int z) {
+        int index = getIndex(x, y, z);
+        if (index < 0 || types[index] != PORTAL) {
+            return -1;
+        }
+        return links[index];
+    }
+
+    /**
+     * Returns true if the given cell is further from the center of the puzzle than the given number of half puzzle sizes.
+     */
+    public boolean isOutOfBounds(int x, int y, int z, int halfSizes) {
+        // Compare doubled coordinates so even sized puzzles stay in integers
+        int limit = halfSizes * size;
+        return Math.abs(2 * x - (size - 1)) > limit
+                || Math.abs(2 * y - (size - 1)) > limit
+                || Math.abs(2 * z - (size - 1)) > limit;
+    }
+}
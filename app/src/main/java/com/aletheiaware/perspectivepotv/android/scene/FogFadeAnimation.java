@@ -23,13 +23,16 @@ public class FogFadeAnimation extends Animation {
 
     private static final float FADE_DURATION = 1.5f;// 1.5 second fade
 
+    private final Clock clock;
     private final float[] destination;
     private final float startingIntensity;
     private final float endingIntensity;
-    private long start = -1;
+    private long start;
+    private boolean started;
 
-    public FogFadeAnimation(float[] destination, float startingIntensity, float endingIntensity) {
+    public FogFadeAnimation(Clock clock, float[] destination, float startingIntensity, float endingIntensity) {
         // System.out.println("FogFadeAnimation: " + startingIntensity + " to " + endingIntensity);
+        this.clock = clock;
         this.destination = destination;
         this.startingIntensity = startingIntensity;
         this.endingIntensity = endingIntensity;
@@ -37,17 +40,18 @@ public class FogFadeAnimation extends Animation {
 
     public void setStart(long start) {
         this.start = start;
+        started = true;
     }
 
     @Override
     public boolean tick() {
-        long now = System.currentTimeMillis();
-        if (start < 0) {
-            start = now;
+        long now = clock.getNanos();
+        if (!started) {
+            setStart(now);
             onBegin();
         }
 
-        float progress = (now - start) / 1000.0f;// Time to seconds
+        float progress = (now - start) / 1000000000.0f;// Time to seconds
         // System.out.println("Time: " + progress);
 
         destination[0] = JoyUtils.map(progress, 0, FADE_DURATION, startingIntensity, endingIntensity);
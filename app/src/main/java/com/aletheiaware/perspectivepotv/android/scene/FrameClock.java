@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.scene;
+
+/**
+ * A clock which only advances when a frame begins, so every animation in a frame sees the same time.
+ */
+public class FrameClock implements Clock {
+
+    private final Clock source;
+    private volatile long time;
+    private volatile boolean started;
+
+    public FrameClock(Clock source) {
+        this.source = source;
+    }
+
+    /**
+     * Called by the render loop before drawing each frame.
+     */
+    public void onFrame() {
+        time = source.getNanos();
+        started = true;
+    }
+
+    @Override
+    public long getNanos() {
+        if (!started) {
+            onFrame();
+        }
+        return time;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.scene;
+
+import android.opengl.GLES20;
+
+import com.aletheiaware.joy.android.scene.GLProgram;
+import com.aletheiaware.joy.android.scene.GLUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A mesh of triangles whose vertices are interleaved as position, normal and texture coordinate, ready for the GPU.
+ *
+ * Triangles are drawn from unsigned short indices if the mesh has them, or else from consecutive vertices. The data is
+ * uploaded to buffers on first draw, and again after {@link #invalidate()} when the GL context is recreated.
+ */
+public class InterleavedMesh {
+
+    public static final int POSITION_SIZE = 3;
+    public static final int NORMAL_SIZE = 3;
+    public static final int TEX_COORD_SIZE = 2;
+    public static final int FLOATS_PER_VERTEX = POSITION_SIZE + NORMAL_SIZE + TEX_COORD_SIZE;
+    public static final int STRIDE = FLOATS_PER_VERTEX * 4;
+    public static final int POSITION_OFFSET = 0;
+    public static final int NORMAL_OFFSET = POSITION_SIZE * 4;
+    public static final int TEX_COORD_OFFSET = (POSITION_SIZE + NORMAL_SIZE) * 4;
+
+    private final ByteBuffer vertices;
+    private final int vertexCount;
+    private final ByteBuffer indices;
+    private final int indexCount;
+    private final int[] buffers = new int[2];
+    private boolean uploaded;
+
+    /**
+     * @param vertices the interleaved vertices, a direct buffer in native byte order.
+     */
+    public InterleavedMesh(ByteBuffer vertices, int vertexCount) {
+        this(vertices, vertexCount, null, 0);
+    }
+
+    /**
+     * @param vertices the interleaved vertices, a direct buffer in native byte order.
+     * @param indices the unsigned short index of each vertex of each triangle, a direct buffer in native byte order.
+     */
+    public InterleavedMesh(ByteBuffer vertices, int vertexCount, ByteBuffer indices, int indexCount) {
+        this.vertices = vertices;
+        this.vertexCount = vertexCount;
+        this.indices = indices;
+        this.indexCount = indexCount;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * Draws the mesh with the given program, which must be in use.
+     */
+    public void draw(GLProgram program) {
+        bind();
+        int position = program.getAttributeLocation("a_Position");
+        int normal = program.getAttributeLocation("a_Normal");
+        int texCoord = program.getAttributeLocation("a_TexCoord");
+        enable(position, POSITION_SIZE, POSITION_OFFSET);
+        enable(normal, NORMAL_SIZE, NORMAL_OFFSET);
+        enable(texCoord, TEX_COORD_SIZE, TEX_COORD_OFFSET);
+        if (indices == null) {
+            GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexCount);
+        } else {
+            GLES20.glDrawElements(GLES20.GL_TRIANGLES, indexCount, GLES20.GL_UNSIGNED_SHORT, 0);
+        }
+        disable(position);
+        disable(normal);
+        disable(texCoord);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GLUtils.checkError("InterleavedMesh.draw");
+    }
+
+    /**
+     * Forgets the buffers, which were lost with the GL context they were created in, so the next draw uploads again.
+     * Call on the GL thread when the surface is created.
+     */
+    public void invalidate() {
+        uploaded = false;
+    }
+
+    /**
+     * Deletes the buffers. Call on the GL thread when the mesh is discarded.
+     */
+    public void release() {
+        if (uploaded) {
+            GLES20.glDeleteBuffers(2, buffers, 0);
+            uploaded = false;
+        }
+    }
+
+    private void bind() {
+        if (!uploaded) {
+            GLES20.glGenBuffers(2, buffers, 0);
+            upload(GLES20.GL_ARRAY_BUFFER, buffers[0], vertices);
+            if (indices != null) {
+                upload(GLES20.GL_ELEMENT_ARRAY_BUFFER, buffers[1], indices);
+            }
+            uploaded = true;
+        } else {
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, buffers[0]);
+            if (indices != null) {
+                GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, buffers[1]);
+            }
+        }
+    }
+
+    private static void upload(int target, int buffer, ByteBuffer data) {
+        GLES20.glBindBuffer(target, buffer);
+        ByteBuffer b = data.duplicate();
+        b.position(0);
+        GLES20.glBufferData(target, b.remaining(), b, GLES20.GL_STATIC_DRAW);
+    }
+
+    private static void enable(int location, int size, int offset) {
+        if (location >= 0) {
+            GLES20.glEnableVertexAttribArray(location);
+            GLES20.glVertexAttribPointer(location, size, GLES20.GL_FLOAT, false, STRIDE, offset);
+        }
+    }
+
+    private static void disable(int location) {
+        if (location >= 0) {
+            GLES20.glDisableVertexAttribArray(location);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.scene;
+
+import android.opengl.GLES20;
+
+import com.aletheiaware.joy.android.scene.GLProgram;
+import com.aletheiaware.joy.android.scene.GLScene;
+import com.aletheiaware.joy.android.scene.GLUtils;
+import com.aletheiaware.joy.scene.Matrix;
+import com.aletheiaware.joy.scene.Scene;
+import com.aletheiaware.joy.scene.SceneGraphNode;
+import com.aletheiaware.perspectivepotv.android.utils.MeshRepository;
+
+/**
+ * Draws an {@link InterleavedMesh} from a {@link MeshRepository}, skipping it until it has loaded.
+ */
+public class InterleavedMeshNode extends SceneGraphNode {
+
+    private final String programName;
+    private final String meshName;
+    private final MeshRepository meshes;
+
+    public InterleavedMeshNode(String programName, String meshName, MeshRepository meshes) {
+        super();
+        this.programName = programName;
+        this.meshName = meshName;
+        this.meshes = meshes;
+    }
+
+    @Override
+    public void before(Scene scene) {
+        InterleavedMesh mesh = meshes.getMesh(meshName);
+        if (mesh == null) {
+            return;
+        }
+        GLProgram program = ((GLScene) scene).getProgramNode(programName).getProgram();
+        Matrix model = scene.getMatrix("model");
+        Matrix view = scene.getMatrix("view");
+        Matrix projection = scene.getMatrix("projection");
+        Matrix modelView = scene.getMatrix("model-view");
+        Matrix modelViewProjection = scene.getMatrix("model-view-projection");
+        modelView.makeMultiplication(view, model);
+        modelViewProjection.makeMultiplication(projection, modelView);
+        GLES20.glUniformMatrix4fv(program.getUniformLocation("u_MVMatrix"), 1, false, modelView.getMatrix(), 0);
+        GLES20.glUniformMatrix4fv(program.getUniformLocation("u_MVPMatrix"), 1, false, modelViewProjection.getMatrix(), 0);
+        mesh.draw(program);
+        GLUtils.checkError("InterleavedMeshNode.before");
+    }
+
+    @Override
+    public void after(Scene scene) {
+        GLUtils.checkError("InterleavedMeshNode.after");
+    }
+}
@@ -17,144 +17,223 @@
 package com.aletheiaware.perspectivepotv.android.scene;
 
 import com.aletheiaware.joy.scene.Animation;
-import com.aletheiaware.joy.scene.Matrix;
 import com.aletheiaware.joy.scene.Vector;
-import com.aletheiaware.joy.utils.JoyUtils;
-import com.aletheiaware.perspective.utils.PerspectiveUtils;
-
-import java.util.Map;
+import com.aletheiaware.perspectivepotv.android.game.ElementIndex;
+import com.aletheiaware.perspectivepotv.android.game.LaunchOutcome;
+import com.aletheiaware.perspectivepotv.android.game.LaunchSimulation;
+import com.aletheiaware.perspectivepotv.android.game.LaunchTrajectory;
+import com.aletheiaware.perspectivepotv.android.game.VoxelGrid;
+import com.aletheiaware.perspectivepotv.android.utils.Trace;
 
 public abstract class LaunchAnimation extends Animation {
 
-    private static final float ACCELERATION = 0.01f;
-    private static final float BURN_DURATION = 1.6f;// 1.6 second burn
-    private static final float INCREMENT = 0.001f;
-
-    private final Vector dest = new Vector();
-    private final Vector temp = new Vector();
-    private final float[] launchAxis = new float[4];
-    private final float size;
-    private final Map<String, Vector> blocks;
-    private final Map<String, Vector> goals;
-    private final Map<Vector, Vector> portals;
-    private final Map<String, Vector> spheres;
-    private long start = -1;
-
-    public LaunchAnimation(float size, Matrix inverseRotation, float[] axis, Map<String, Vector> blocks, Map<String, Vector> goals, Map<Vector, Vector> portals, Map<String, Vector> spheres) {
+    // The ship used to advance 0.5 * 0.01 * t^2 cells on each of 60 frames per second, which integrates to t^3 / 10
+    // cells after t seconds of burn
+    private static final long BURN_DURATION = 1600;// 1.6 second burn
+    private static final long DISTANCE_DIVISOR = 10000000000L;// t^3 / 10 with t in milliseconds
+    // Long enough for any launch to complete, short enough that the distance can't overflow
+    private static final long MAX_DURATION = 60 * 60 * 1000;
+
+    private final int[] cellAxis = new int[3];
+    private final int[] cell = new int[3];
+    private final Clock clock;
+    private final VoxelGrid grid;
+    private final ElementIndex index;
+    private final int count;
+    private final Vector[] positions;
+    private LaunchTrajectory trajectory;
+    private LaunchOutcome outcome;
+    private long start;
+    private boolean started;
+    private boolean blasting = true;
+    private int current = 0;
+
+    /**
+     * Creates an animation of launches of the index's ships, which is {@link #reset} before each launch so the same
+     * animation can be used for every launch in a puzzle.
+     */
+    public LaunchAnimation(Clock clock, ElementIndex index) {
         super();
-        this.size = size;
-        this.blocks = blocks;
-        this.goals = goals;
-        this.portals = portals;
-        this.spheres = spheres;
-
-        inverseRotation.multiply(axis, launchAxis);
-        System.out.println("Launch Axis A: " + java.util.Arrays.toString(launchAxis));
-        JoyUtils.round(launchAxis);
-        System.out.println("Launch Axis B: " + java.util.Arrays.toString(launchAxis));
+        this.clock = clock;
+        this.grid = index.grid;
+        this.index = index;
+        this.count = index.shipCount;
+        this.positions = index.spheres;
+    }
+
+    /**
+     * Prepares to animate the given launch.
+     *
+     * @param trajectory the launch of the index's ships, already resolved.
+     * @param outcome the outcome of the launch, or null to work it out from the trajectory when it's needed.
+     */
+    public void reset(LaunchTrajectory trajectory, LaunchOutcome outcome) {
+        this.trajectory = trajectory;
+        this.outcome = outcome;
+        start = 0;
+        started = false;
+        blasting = true;
+        current = 0;
+        System.arraycopy(trajectory.getAxis(), 0, cellAxis, 0, 3);
+        if (Trace.DEBUG) {
+            Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_LAUNCH, trajectory.getStepCount(), count, Trace.packAxis(cellAxis), 0, null);
+        }
+    }
+
+    /**
+     * Returns the outcome of this launch.
+     */
+    public LaunchOutcome getOutcome() {
+        if (outcome == null) {
+            outcome = LaunchOutcome.of(trajectory);
+        }
+        return outcome;
+    }
+
+    public Clock getClock() {
+        return clock;
     }
 
     public void setStart(long start) {
         this.start = start;
+        started = true;
+    }
+
+    /**
+     * Returns the fixed point distance in cells travelled by the ships after the given number of milliseconds.
+     */
+    static long getDistance(long elapsed) {
+        long t = Math.min(Math.max(elapsed, 0), MAX_DURATION);
+        // Stage 1: Accelerating
+        if (t < BURN_DURATION) {
+            return toFixed(t * t * t);
+        }
+        // Stage 2: Max Velocity, the same distance as t^3 - coast^3
+        long b = BURN_DURATION;
+        long coast = t - b;
+        return toFixed(b * (b * b + 3 * b * coast + 3 * coast * coast));
+    }
+
+    // Divides the given distance by DISTANCE_DIVISOR without overflowing the fixed point result
+    private static long toFixed(long n) {
+        return (n / DISTANCE_DIVISOR) * VoxelGrid.FIXED_ONE + ((n % DISTANCE_DIVISOR) * VoxelGrid.FIXED_ONE) / DISTANCE_DIVISOR;
     }
 
     @Override
     public boolean tick() {
-        long now = System.currentTimeMillis();
-        if (start < 0) {
+        long now = clock.getNanos();
+        if (!started) {
             setStart(now);
             onBegin();
+            // Report ships which couldn't move at all
+            for (int i = 0; i < count; i++) {
+                String hit = trajectory.getStartHit(i);
+                if (hit != null) {
+                    onStopped(i, trajectory.getStartEvents(i), hit);
+                }
+            }
         }
-        if (spheres.isEmpty()) {
+        if (count == 0) {
             return true;
         }
-        // TODO this works for one position, now need to refactor for multiple
-        Vector position = null;
-        for (Vector v : spheres.values()) {
-            position = v;// Hack - gets the last in the set
-        }
 
-        System.out.println("Launch axis: " + java.util.Arrays.toString(launchAxis));
-        float progress = (now - start) / 1000.0f;// Time to seconds
-        System.out.println("Time: " + progress);
-
-        float distance = 0f;
-
-        // Stage 1: Accelerating
-        if (progress < BURN_DURATION) {
-            System.out.println("Stage1: " + progress);
-            distance = (0.5f * ACCELERATION * progress * progress);
-        } else {
-            onBlastComplete();
-            System.out.println("Stage1: " + BURN_DURATION);
-            distance = (0.5f * ACCELERATION * BURN_DURATION * BURN_DURATION);
-            // Stage 2: Max Velocity
-            float velocity = ACCELERATION * BURN_DURATION;
-            System.out.println("Stage2: " + (progress-BURN_DURATION));
-            distance += velocity*(progress-BURN_DURATION);
+        long elapsed = (now - start) / 1000000;// Time to milliseconds
+        if (blasting && elapsed >= BURN_DURATION) {
+            blastComplete();
         }
 
-        System.out.println("Distance: " + distance);
-        for (float i = 0; i < distance; i += INCREMENT) {
-            dest.setX(position.getX() + (INCREMENT * launchAxis[0]));
-            dest.setY(position.getY() + (INCREMENT * launchAxis[1]));
-            dest.setZ(position.getZ() + (INCREMENT * launchAxis[2]));
-            dest.round(3);// Round to 3 decimal places
-            if (PerspectiveUtils.isCellCenter(dest)) {
-                if (PerspectiveUtils.isOutOfBounds(dest, size / 2)) {
+        long distance = getDistance(elapsed);
+        long completed = distance >> VoxelGrid.FIXED_SHIFT;
+        int steps = trajectory.getStepCount();
+        // Fire the events of each step completed since the last frame
+        while (current < steps && completed > current) {
+            for (int i = 0; i < count; i++) {
+                int events = trajectory.getEvents(current, i);
+                if (events == 0) {
+                    continue;
+                }
+                setPosition(i, trajectory.getExit(current, i, cell));
+                if ((events & LaunchSimulation.EVENT_OUTLINE_CROSSED) != 0) {
                     onOutlineCrossed();
-                    // Double size so ball is offscreen, well out of bounds
-                    if (PerspectiveUtils.isOutOfBounds(dest, size * 2)) {
-                        System.out.println("Ball out of bounds");
-                        onBlastComplete();
-                        position.set(dest);
-                        return true;
+                }
+                if ((events & LaunchSimulation.EVENT_OUT_OF_BOUNDS) != 0) {
+                    if (Trace.DEBUG) {
+                        Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_SPHERE_OUT_OF_BOUNDS, i, 0, 0, 0, null);
                     }
                 }
-
-                if (goals != null) {
-                    for (Vector g : goals.values()) {
-                        if (dest.equals(g)) {
-                            System.out.println("Ball in Goal");
-                            onBlastComplete();
-                            position.set(dest);
-                            return true;
-                        }
+                if ((events & LaunchSimulation.EVENT_GOAL_REACHED) != 0) {
+                    if (Trace.DEBUG) {
+                        Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_SPHERE_IN_GOAL, i, 0, 0, 0, null);
                     }
                 }
-
-                if (portals != null && portals.containsKey(dest)) {
-                    Vector prev = dest.clone();
-                    dest.set(portals.get(dest));
-                    System.out.println("Ball moved through Portal at " + prev + " to " + dest);
-                    // move ball to paired portal
-                    position.set(dest);
+                if ((events & LaunchSimulation.EVENT_PORTAL_TRAVERSED) != 0) {
+                    if (Trace.DEBUG) {
+                        Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_SPHERE_PORTAL, i, cell[0], cell[1], cell[2], null);
+                    }
                     onPortalTraversed();
                 }
-            }
-
-            if (blocks != null && PerspectiveUtils.isCellCenter(position)) {
-                Vector next = PerspectiveUtils.getNextCell(temp, position, launchAxis[0], launchAxis[1], launchAxis[2]);
-                for (Map.Entry<String, Vector> b : blocks.entrySet()) {
-                    if (next.equals(b.getValue())) {
-                        System.out.println("Ball stopped at Block");
-                        onBlastComplete();
-                        onBlockHit(b.getKey());
-                        return true;
-                    }
+                if ((events & (LaunchSimulation.EVENT_BLOCK_HIT | LaunchSimulation.EVENT_SPHERE_HIT)) != 0) {
+                    onStopped(i, events, trajectory.getHit(current, i));
                 }
             }
+            current++;
+        }
+        if (current >= steps) {
+            for (int i = 0; i < count; i++) {
+                setPosition(i, trajectory.getEnd(i, cell));
+            }
+            index.updateSphereCells();
+            blastComplete();
+            return true;
+        }
 
-            System.out.println("Ball moved to " + dest);
-            position.set(dest);
+        // Interpolate moving ships along the current step
+        int fraction = (int) (distance & (VoxelGrid.FIXED_ONE - 1));
+        for (int i = 0; i < count; i++) {
+            trajectory.getFrom(current, i, cell);
+            if ((trajectory.getEvents(current, i) & LaunchSimulation.EVENT_MOVED) != 0) {
+                grid.toVector(cell, cellAxis, fraction, positions[i]);
+            } else {
+                setPosition(i, cell);
+            }
         }
         return false;
     }
 
+    private void onStopped(int sphere, int events, String hit) {
+        if (Trace.DEBUG) {
+            Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_SPHERE_STOPPED, sphere, 0, 0, 0, hit);
+        }
+        if ((events & LaunchSimulation.EVENT_BLOCK_HIT) != 0) {
+            onBlockHit(hit);
+        } else {
+            onSphereHit(hit);
+        }
+    }
+
+    private void setPosition(int sphere, int[] c) {
+        grid.toVector(c[0], c[1], c[2], positions[sphere]);
+    }
+
+    private void blastComplete() {
+        if (blasting) {
+            blasting = false;
+            onBlastComplete();
+        }
+    }
+
     public abstract void onBlastComplete();
 
+    /**
+     * Called when a ship comes to rest against the named block.
+     */
     public abstract void onBlockHit(String block);
 
+    /**
+     * Called when a ship comes to rest against the named sphere, one which is stopped or which it would have run into.
+     */
+    public abstract void onSphereHit(String sphere);
+
     public abstract void onPortalTraversed();
 
     public abstract void onOutlineCrossed();
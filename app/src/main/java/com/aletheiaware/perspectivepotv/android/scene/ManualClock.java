@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.scene;
+
+/**
+ * A clock which only advances when told to, for stepping animations frame by frame without a display.
+ */
+public class ManualClock implements Clock {
+
+    private final long step;
+    private long time;
+
+    /**
+     * @param step the nanoseconds to advance on each call to {@link #step()}, such as 1000000000 / 60 for 60fps.
+     */
+    public ManualClock(long step) {
+        this.step = step;
+    }
+
+    @Override
+    public long getNanos() {
+        return time;
+    }
+
+    public void set(long time) {
+        this.time = time;
+    }
+
+    public void advance(long nanos) {
+        time += nanos;
+    }
+
+    public void step() {
+        time += step;
+    }
+}
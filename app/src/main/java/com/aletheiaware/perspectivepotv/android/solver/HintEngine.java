@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import com.aletheiaware.perspective.PerspectiveProto.Puzzle;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+import com.aletheiaware.perspectivepotv.android.game.ElementIndex;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finds the next move of an optimal solution from the current state of a puzzle, on a worker thread.
+ *
+ * Every state along a solution found is remembered with its next move, keyed by the puzzle's hash, so following a hint
+ * and asking again, or asking again after a reset, is answered without searching.
+ */
+public class HintEngine {
+
+    public interface Callback {
+        void onHint(Hint hint);
+    }
+
+    /**
+     * The next move towards the goal, one of the Orientation.TURN_* or Solver.ACTION_LAUNCH, and the score needed to finish.
+     */
+    public static class Hint {
+        public static final int STATUS_SOLVED = 0;
+        public static final int STATUS_UNREACHABLE = 1;
+        public static final int STATUS_TIMEOUT = 2;
+
+        public final int status;
+        public final int action;
+        public final int remaining;
+
+        Hint(int status, int action, int remaining) {
+            this.status = status;
+            this.action = action;
+            this.remaining = remaining;
+        }
+    }
+
+    private static final int CACHE_SIZE = 8;
+    private static final long TIME_BUDGET = 3000;// 3 seconds
+    private static final long MAX_MEMORY = 8 * 1024 * 1024;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Puzzle hash to hints by state, most recently used last
+    private final Map<String, Map<Key, Hint>> cache = new LinkedHashMap<String, Map<Key, Hint>>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<Key, Hint>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    // Only used on the worker
+    private Solver solver;
+    private ElementIndex solverIndex;
+
+    /**
+     * Finds a hint from the given state, calling back on the worker thread.
+     *
+     * @param puzzle the puzzle being played.
+     * @param index the elements of the puzzle.
+     * @param up the axis of the view along which ships launch.
+     * @param orientation the current orientation of the puzzle.
+     * @param cells the current cells of the ships.
+     */
+    public void hint(final Puzzle puzzle, final ElementIndex index, final int[] up, final int orientation, int[] cells, final Callback callback) {
+        final int[] c = Arrays.copyOf(cells, index.shipCount * 3);
+        final Key key = new Key(orientation, c);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String hash = null;
+                try {
+                    hash = PerspectiveUtils.getHash(puzzle.toByteArray());
+                } catch (NoSuchAlgorithmException e) {
+                    e.printStackTrace();
+                }
+                Map<Key, Hint> hints = getHints(hash);
+                Hint hint = hints == null ? null : hints.get(key);
+                if (hint == null) {
+                    hint = solve(index, up, orientation, c, hints);
+                }
+                callback.onHint(hint);
+            }
+        });
+    }
+
+    private synchronized Map<Key, Hint> getHints(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        Map<Key, Hint> hints = cache.get(hash);
+        if (hints == null) {
+            hints = new HashMap<>();
+            cache.put(hash, hints);
+        }
+        return hints;
+    }
+
+    private Hint solve(ElementIndex index, int[] up, int orientation, int[] cells, Map<Key, Hint> hints) {
+        if (solver == null || solverIndex != index) {
+            solver = new Solver(index, up);
+            solver.setMaxMemory(MAX_MEMORY);
+            solverIndex = index;
+        }
+        solver.setDeadline(System.nanoTime() + TIME_BUDGET * 1000000);
+        Solver.Result result = solver.solve(orientation, cells);
+        if (!result.solved) {
+            Hint hint = new Hint(result.complete ? Hint.STATUS_UNREACHABLE : Hint.STATUS_TIMEOUT, 0, -1);
+            if (result.complete && hints != null) {
+                synchronized (this) {
+                    hints.put(new Key(orientation, cells), hint);
+                }
+            }
+            return hint;
+        }
+        if (result.actions.length == 0) {
+            // Already in the goals
+            return new Hint(Hint.STATUS_SOLVED, Solver.ACTION_LAUNCH, 0);
+        }
+        // Remember the next move from every state along the solution
+        Hint first = null;
+        int o = orientation;
+        int[] c = cells;
+        int remaining = result.score;
+        synchronized (this) {
+            for (int i = 0; i < result.actions.length; i++) {
+                Hint hint = new Hint(Hint.STATUS_SOLVED, result.actions[i], remaining);
+                if (first == null) {
+                    first = hint;
+                }
+                if (hints != null) {
+                    hints.put(new Key(o, c), hint);
+                }
+                if (result.actions[i] != Solver.ACTION_LAUNCH) {
+                    remaining--;
+                }
+                o = result.orientations[i];
+                c = result.cells[i];
+            }
+        }
+        return first;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class Key {
+        private final int[] state;
+        private final int hash;
+
+        Key(int orientation, int[] cells) {
+            state = new int[1 + cells.length];
+            state[0] = orientation;
+            System.arraycopy(cells, 0, state, 1, cells.length);
+            hash = Arrays.hashCode(state);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(state, ((Key) o).state);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import com.aletheiaware.joy.scene.Scene;
+import com.aletheiaware.joy.scene.Vector;
+import com.aletheiaware.perspective.Perspective;
+import com.aletheiaware.perspective.PerspectiveProto.Move;
+import com.aletheiaware.perspective.PerspectiveProto.Puzzle;
+import com.aletheiaware.perspective.PerspectiveProto.Solution;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+import com.aletheiaware.perspectivepotv.android.game.ElementIndex;
+import com.aletheiaware.perspectivepotv.android.game.LaunchOutcome;
+import com.aletheiaware.perspectivepotv.android.game.LaunchSimulation;
+import com.aletheiaware.perspectivepotv.android.game.Orientation;
+import com.aletheiaware.perspectivepotv.android.game.VoxelGrid;
+
+import java.util.Arrays;
+
+/**
+ * Finds the minimum score of a puzzle by searching every state reachable by turns and launches.
+ *
+ * A state is the orientation of the puzzle and the cell of every ship. Each quarter turn of the view scores one move,
+ * and launches are free, so states are explored in order of score with a 0-1 breadth first search. Launches are resolved
+ * by the same {@link LaunchSimulation} as the game, so a solution found here plays out the same on a device.
+ *
+ * States already reached are recorded in a {@link TranspositionTable} of bounded size, keyed by a {@link StateEncoding}.
+ * States which are rotations of each other under a {@link Symmetry} of the puzzle share one entry. Each state carries
+ * the hash of its image under every symmetry, updated by each turn and launch, so finding the canonical state doesn't
+ * hash it again. The states queued
+ * for expansion, and those on the paths to them, are kept in flat arrays of bounded size, and the search gives up if
+ * they fill.
+ */
+public class Solver {
+
+    public static final int ACTION_LAUNCH = -1;
+
+    private static final int DEFAULT_MAX_STATES = 1000000;
+    private static final long DEFAULT_MAX_MEMORY = 16 * 1024 * 1024;
+    private static final long ZOBRIST_SEED = 0x5EED;
+
+    private final ElementIndex index;
+    private final int[] up;
+    private final LaunchSimulation simulation;
+    private final int[] axis = new int[3];
+    private final StateEncoding encoding;
+    private final long[] key;
+    private final long[] scratch;
+    private final int[] canonical;
+    private final int[] current;
+    private Symmetry symmetry;
+    // Hashes of the images of the current state, and of the next state, under each symmetry
+    private long[] hashes;
+    private long[] next;
+    private TranspositionTable table;
+    private Nodes nodes;
+    private int maxStates = DEFAULT_MAX_STATES;
+    private long maxMemory = DEFAULT_MAX_MEMORY;
+    private long deadline = Long.MAX_VALUE;
+
+    /**
+     * @param index the elements of the puzzle.
+     * @param up the axis of the view along which ships launch.
+     */
+    public Solver(ElementIndex index, int[] up) {
+        this.index = index;
+        this.up = up.clone();
+        this.simulation = new LaunchSimulation(index.grid);
+        this.encoding = new StateEncoding(index.grid, index.shipCount, ZOBRIST_SEED);
+        this.key = new long[encoding.getWords()];
+        this.scratch = new long[encoding.getWords()];
+        this.canonical = new int[index.shipCount * 3];
+        this.current = new int[index.shipCount * 3];
+        setSymmetry(new Symmetry(index.grid));
+    }
+
+    /**
+     * Creates a solver for the given puzzle without a display, by importing it into a scene that is never drawn.
+     */
+    public static Solver create(Puzzle puzzle, int size) {
+        Scene scene = new Scene();
+        Perspective perspective = new Perspective(new HeadlessCallback(), scene, size);
+        perspective.importPuzzle(puzzle);
+        ElementIndex index = ElementIndex.create(perspective, scene);
+        return new Solver(index, Orientation.toAxis(perspective.up, new int[3]));
+    }
+
+    public ElementIndex getIndex() {
+        return index;
+    }
+
+    public Symmetry getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Sets the number of states after which the search gives up.
+     */
+    public void setMaxStates(int maxStates) {
+        this.maxStates = maxStates;
+    }
+
+    /**
+     * Sets the memory in bytes of the search, shared equally by the table of states already reached and the states
+     * queued for expansion.
+     */
+    public void setMaxMemory(long maxMemory) {
+        if (maxMemory != this.maxMemory) {
+            this.maxMemory = maxMemory;
+            table = null;
+            nodes = null;
+        }
+    }
+
+    /**
+     * Sets the {@link System#nanoTime()} after which the search gives up.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    // Sets whether states which are rotations of each other under a symmetry of the puzzle share one entry
+    void setSymmetric(boolean symmetric) {
+        setSymmetry(new Symmetry(index.grid, symmetric));
+    }
+
+    private void setSymmetry(Symmetry symmetry) {
+        this.symmetry = symmetry;
+        hashes = new long[symmetry.getOrder()];
+        next = new long[symmetry.getOrder()];
+        // Each state holds a hash per symmetry
+        table = null;
+        nodes = null;
+    }
+
+    /**
+     * Solves the puzzle from its starting state.
+     */
+    public Result solve() {
+        return solve(Orientation.IDENTITY, Arrays.copyOf(index.sphereCells, index.shipCount * 3));
+    }
+
+    /**
+     * Solves the puzzle from the given orientation and ship cells.
+     *
+     * The search stops early if the thread is interrupted, the deadline passes, or the state limit is reached.
+     */
+    public Result solve(int orientation, int[] cells) {
+        int count = index.shipCount;
+        if (table == null) {
+            table = new TranspositionTable(encoding.getWords(), maxMemory / 2);
+            nodes = new Nodes(count, symmetry.getOrder(), maxMemory / 2);
+        } else {
+            table.clear();
+            nodes.clear();
+        }
+        symmetry.hash(orientation, cells, count, encoding, hashes);
+        visit(orientation, cells, hashes, Nodes.NONE, 0, 0, true);
+        int expanded = 0;
+        while (!nodes.isQueueEmpty()) {
+            int node = nodes.poll();
+            int o = nodes.getOrientation(node);
+            int score = nodes.getScore(node);
+            nodes.getHashes(node, hashes);
+            nodes.getCells(node, current);
+            // Skip states since reached with a lower score
+            int best = table.get(getKey(o, current, hashes), key);
+            if (best >= 0 && best < score) {
+                continue;
+            }
+            if (isWon(current)) {
+                return new Result(this, nodes, node, expanded, true);
+            }
+            expanded++;
+            if ((expanded & 0x3FF) == 0 && (Thread.currentThread().isInterrupted() || System.nanoTime() > deadline)) {
+                return new Result(this, nodes, Nodes.NONE, expanded, false);
+            }
+            if (expanded > maxStates) {
+                return new Result(this, nodes, Nodes.NONE, expanded, false);
+            }
+
+            // Launching is free
+            Orientation.getLaunchAxis(o, up, axis);
+            simulation.simulate(axis, index.sphereNames, current, count);
+            LaunchOutcome outcome = LaunchOutcome.of(simulation);
+            if (!outcome.lost && !Arrays.equals(outcome.ends, current)) {
+                System.arraycopy(hashes, 0, next, 0, hashes.length);
+                symmetry.launch(next, current, outcome.ends, count, encoding);
+                if (!visit(o, outcome.ends, next, node, ACTION_LAUNCH, score, true)) {
+                    return new Result(this, nodes, Nodes.NONE, expanded, false);
+                }
+            }
+
+            // Turning scores one move
+            for (int t = 0; t < Orientation.TURN_COUNT; t++) {
+                int turned = Orientation.turn(o, t);
+                System.arraycopy(hashes, 0, next, 0, hashes.length);
+                symmetry.turn(next, o, turned, encoding);
+                if (!visit(turned, current, next, node, t, score + 1, false)) {
+                    return new Result(this, nodes, Nodes.NONE, expanded, false);
+                }
+            }
+        }
+        // Every reachable state was explored without winning
+        return new Result(this, nodes, Nodes.NONE, expanded, true);
+    }
+
+    // Encodes the canonical form of the state into key, and returns its hash
+    private long getKey(int orientation, int[] cells, long[] hashes) {
+        if (symmetry.getOrder() == 1) {
+            encoding.encode(orientation, cells, key);
+            return hashes[0];
+        }
+        return hashes[symmetry.canonicalize(orientation, cells, index.shipCount, hashes, encoding, canonical, key, scratch)];
+    }
+
+    // Queues the state if it is new or reached with a lower score, returning false if there is no memory left for it
+    private boolean visit(int orientation, int[] cells, long[] hashes, int parent, int action, int score, boolean free) {
+        if (!table.update(getKey(orientation, cells, hashes), key, score)) {
+            return true;
+        }
+        return nodes.add(orientation, cells, hashes, parent, action, score, free);
+    }
+
+    private boolean isWon(int[] cells) {
+        VoxelGrid grid = index.grid;
+        for (int i = 0; i < cells.length; i += 3) {
+            if (grid.getType(cells[i], cells[i + 1], cells[i + 2]) != VoxelGrid.GOAL) {
+                return false;
+            }
+        }
+        return cells.length > 0;
+    }
+
+    /**
+     * The result of a search; the minimum score and the actions which achieve it, if the puzzle was solved.
+     */
+    public static class Result {
+        // True if the puzzle was solved, or if every reachable state was explored
+        public final boolean complete;
+        public final boolean solved;
+        public final int score;
+        public final int states;
+        // Turns as Orientation.TURN_*, or ACTION_LAUNCH
+        public final int[] actions;
+        // The orientation and ship cells after each action
+        public final int[] orientations;
+        public final int[][] cells;
+        private final Solver solver;
+
+        Result(Solver solver, Nodes nodes, int end, int states, boolean complete) {
+            this.solver = solver;
+            this.complete = complete;
+            this.solved = end != Nodes.NONE;
+            this.score = solved ? nodes.getScore(end) : -1;
+            this.states = states;
+            int length = 0;
+            for (int n = end; n != Nodes.NONE && nodes.getParent(n) != Nodes.NONE; n = nodes.getParent(n)) {
+                length++;
+            }
+            actions = new int[length];
+            orientations = new int[length];
+            cells = new int[length][];
+            int i = length;
+            for (int n = end; i > 0; n = nodes.getParent(n)) {
+                i--;
+                actions[i] = nodes.getAction(n);
+                orientations[i] = nodes.getOrientation(n);
+                cells[i] = nodes.getCells(n, new int[solver.index.shipCount * 3]);
+            }
+        }
+
+        /**
+         * Returns the solution, recording the ships' locations after each launch as the game does.
+         */
+        public Solution getSolution() {
+            if (!solved) {
+                return null;
+            }
+            ElementIndex index = solver.index;
+            Solution.Builder builder = Solution.newBuilder().setScore(score);
+            Vector vector = new Vector(0, 0, 0);
+            for (int i = 0; i < actions.length; i++) {
+                if (actions[i] != ACTION_LAUNCH) {
+                    continue;
+                }
+                for (int s = 0; s < index.shipCount; s++) {
+                    int c = s * 3;
+                    index.grid.toVector(cells[i][c], cells[i][c + 1], cells[i][c + 2], vector);
+                    builder.addMove(Move.newBuilder()
+                            .setKey(index.sphereNames[s])
+                            .setValue(PerspectiveUtils.vectorToLocation(vector))
+                            .build());
+                }
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * The states reached by a search, each with the state it was reached from, and a double ended queue of those still
+     * to be expanded.
+     *
+     * States are stored in flat arrays, so each costs a fixed number of bytes rather than an object and a cells array.
+     */
+    static class Nodes {
+
+        static final int NONE = -1;
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final int stride;
+        private final int hashStride;
+        private final int maxCapacity;
+        private int[] orientations = new int[0];
+        private int[] cells = new int[0];
+        private long[] hashes = new long[0];
+        private int[] parents = new int[0];
+        private int[] actions = new int[0];
+        private int[] scores = new int[0];
+        private int size;
+        // Circular queue of node indices
+        private int[] queue = new int[0];
+        private int head;
+        private int queued;
+
+        /**
+         * @param count the number of ships in a state.
+         * @param hashCount the number of hashes of a state.
+         * @param maxBytes the memory the states and the queue may use.
+         */
+        Nodes(int count, int hashCount, long maxBytes) {
+            stride = count * 3;
+            hashStride = hashCount;
+            // Orientation, cells, hashes, parent, action, score, and a queue entry
+            long bytes = 4 + stride * 4 + hashStride * 8 + 4 + 4 + 4 + 4;
+            maxCapacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE / Math.max(Math.max(stride, hashStride), 8), maxBytes / bytes));
+        }
+
+        void clear() {
+            size = 0;
+            head = 0;
+            queued = 0;
+        }
+
+        /**
+         * Adds a state and queues it at the front if free, or at the back, returning false if there is no room for it.
+         */
+        boolean add(int orientation, int[] c, long[] h, int parent, int action, int score, boolean free) {
+            if (size == orientations.length && !grow()) {
+                return false;
+            }
+            int n = size++;
+            orientations[n] = orientation;
+            System.arraycopy(c, 0, cells, n * stride, stride);
+            System.arraycopy(h, 0, hashes, n * hashStride, hashStride);
+            parents[n] = parent;
+            actions[n] = action;
+            scores[n] = score;
+            // The queue is never larger than the states, so it has room
+            if (free) {
+                head = (head + queue.length - 1) % queue.length;
+                queue[head] = n;
+            } else {
+                queue[(head + queued) % queue.length] = n;
+            }
+            queued++;
+            return true;
+        }
+
+        boolean isQueueEmpty() {
+            return queued == 0;
+        }
+
+        int poll() {
+            int n = queue[head];
+            head = (head + 1) % queue.length;
+            queued--;
+            return n;
+        }
+
+        int getOrientation(int n) {
+            return orientations[n];
+        }
+
+        int[] getCells(int n, int[] c) {
+            System.arraycopy(cells, n * stride, c, 0, stride);
+            return c;
+        }
+
+        long[] getHashes(int n, long[] h) {
+            System.arraycopy(hashes, n * hashStride, h, 0, hashStride);
+            return h;
+        }
+
+        int getParent(int n) {
+            return parents[n];
+        }
+
+        int getAction(int n) {
+            return actions[n];
+        }
+
+        int getScore(int n) {
+            return scores[n];
+        }
+
+        private boolean grow() {
+            int capacity = orientations.length;
+            if (capacity >= maxCapacity) {
+                return false;
+            }
+            int grown = (int) Math.min(maxCapacity, Math.max(INITIAL_CAPACITY, capacity * 2L));
+            orientations = Arrays.copyOf(orientations, grown);
+            cells = Arrays.copyOf(cells, grown * stride);
+            hashes = Arrays.copyOf(hashes, grown * hashStride);
+            parents = Arrays.copyOf(parents, grown);
+            actions = Arrays.copyOf(actions, grown);
+            scores = Arrays.copyOf(scores, grown);
+            // Unwrap the queue into the larger array
+            int[] q = new int[grown];
+            for (int i = 0; i < queued; i++) {
+                q[i] = queue[(head + i) % queue.length];
+            }
+            queue = q;
+            head = 0;
+            return true;
+        }
+    }
+
+    private static class HeadlessCallback implements Perspective.Callback {
+        @Override
+        public void addSceneGraphNode(String shader, String name, String type, String mesh, String colour, String texture, String material) {
+            // Ignore
+        }
+
+        @Override
+        public void onDropComplete() {
+            // Ignore
+        }
+
+        @Override
+        public void onRotateComplete() {
+            // Ignore
+        }
+
+        @Override
+        public void onTurnComplete() {
+            // Ignore
+        }
+
+        @Override
+        public void onGameLost() {
+            // Ignore
+        }
+
+        @Override
+        public void onGameWon() {
+            // Ignore
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import com.aletheiaware.perspectivepotv.android.game.Orientation;
+import com.aletheiaware.perspectivepotv.android.game.VoxelGrid;
+
+import java.util.Random;
+
+/**
+ * Packs a puzzle state, the orientation and the cell of each ship, into a few longs, and hashes it with Zobrist keys.
+ *
+ * The hash of a state is the xor of a key for its orientation and a key for each ship's cell, so a turn or a launch
+ * updates the hash by xoring out the old keys and xoring in the new ones, see {@link Symmetry#turn} and
+ * {@link Symmetry#launch}.
+ */
+public class StateEncoding {
+
+    private static final int ORIENTATION_BITS = 5;
+
+    private final VoxelGrid grid;
+    private final int count;
+    // One value per cell of the grid, plus one for any cell outside it
+    private final int outside;
+    private final int bits;
+    private final int words;
+    private final long[] orientationKeys = new long[Orientation.COUNT];
+    private final long[][] cellKeys;
+
+    public StateEncoding(VoxelGrid grid, int count, long seed) {
+        this.grid = grid;
+        this.count = count;
+        int size = grid.getSize();
+        outside = size * size * size;
+        bits = 32 - Integer.numberOfLeadingZeros(outside);
+        words = (ORIENTATION_BITS + count * bits + 63) / 64;
+        Random random = new Random(seed);
+        for (int o = 0; o < orientationKeys.length; o++) {
+            orientationKeys[o] = random.nextLong();
+        }
+        cellKeys = new long[count][outside + 1];
+        for (long[] keys : cellKeys) {
+            for (int c = 0; c < keys.length; c++) {
+                keys[c] = random.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of longs in an encoded state.
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * Returns the index of the given ship's cell, three coordinates per ship.
+     */
+    public int getCell(int[] cells, int ship) {
+        int c = ship * 3;
+        int index = grid.getIndex(cells[c], cells[c + 1], cells[c + 2]);
+        return index < 0 ? outside : index;
+    }
+
+    public void encode(int orientation, int[] cells, long[] out) {
+        for (int w = 0; w < words; w++) {
+            out[w] = 0;
+        }
+        int offset = write(out, 0, orientation, ORIENTATION_BITS);
+        for (int i = 0; i < count; i++) {
+            offset = write(out, offset, getCell(cells, i), bits);
+        }
+    }
+
+    // Writes the low bits of value at the given bit offset, returning the offset after it
+    private static int write(long[] out, int offset, int value, int bits) {
+        int word = offset >>> 6;
+        int shift = offset & 63;
+        out[word] |= ((long) value) << shift;
+        if (shift + bits > 64) {
+            out[word + 1] |= ((long) value) >>> (64 - shift);
+        }
+        return offset + bits;
+    }
+
+    public long hash(int orientation, int[] cells) {
+        long hash = orientationKeys[orientation];
+        for (int i = 0; i < count; i++) {
+            hash ^= cellKeys[i][getCell(cells, i)];
+        }
+        return hash;
+    }
+
+    long getOrientationKey(int orientation) {
+        return orientationKeys[orientation];
+    }
+
+    // The key of the given ship in the cell with the given index, or outside the grid
+    long getCellKey(int ship, int cell) {
+        return cellKeys[ship][cell];
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import com.aletheiaware.perspectivepotv.android.game.Orientation;
+import com.aletheiaware.perspectivepotv.android.game.VoxelGrid;
+
+/**
+ * The rotations of the cube which map a puzzle's blocks, goals and portals onto themselves.
+ *
+ * If rotation g is a symmetry, the state with orientation R and ships in cells C plays out exactly like the state with
+ * orientation R * g^-1 and ships in cells g(C); the launch axis is rotated by g, and so is every cell the ships pass
+ * through. A search need only visit one of these states, the canonical one.
+ *
+ * The hash of a state's image under every symmetry is updated as the state changes, with tables of the image of each
+ * orientation and cell, and the canonical state is the image with the smallest hash. Only that image is encoded.
+ */
+public class Symmetry {
+
+    private final VoxelGrid grid;
+    private final int size;
+    private final int[] elements;
+    // The image of each orientation, and of each cell index plus one for outside the grid, under each symmetry
+    private final int[][] orientationImages;
+    private final int[][] cellImages;
+    private final int[] from = new int[3];
+    private final int[] to = new int[3];
+    private int[] image = new int[0];
+
+    public Symmetry(VoxelGrid grid) {
+        this(grid, true);
+    }
+
+    // Finds the symmetries of the grid, or only the identity if rotations is false
+    Symmetry(VoxelGrid grid, boolean rotations) {
+        this.grid = grid;
+        this.size = grid.getSize();
+        int[] found = new int[Orientation.COUNT];
+        int order = 0;
+        for (int g = 0; g < Orientation.COUNT; g++) {
+            if (g == Orientation.IDENTITY || (rotations && isSymmetry(g))) {
+                found[order++] = g;
+            }
+        }
+        elements = new int[order];
+        System.arraycopy(found, 0, elements, 0, order);
+
+        int cells = size * size * size;
+        int[] cell = new int[3];
+        orientationImages = new int[order][Orientation.COUNT];
+        cellImages = new int[order][cells + 1];
+        for (int e = 0; e < order; e++) {
+            int inverse = Orientation.inverse(elements[e]);
+            for (int o = 0; o < Orientation.COUNT; o++) {
+                orientationImages[e][o] = Orientation.multiply(o, inverse);
+            }
+            for (int c = 0; c < cells; c++) {
+                grid.getCell(c, cell);
+                transform(elements[e], cell, 0, cell, 0);
+                cellImages[e][c] = grid.getIndex(cell);
+            }
+            cellImages[e][cells] = cells;
+        }
+    }
+
+    private boolean isSymmetry(int g) {
+        int[] cell = new int[3];
+        int[] image = new int[3];
+        int count = size * size * size;
+        for (int c = 0; c < count; c++) {
+            grid.getCell(c, cell);
+            transform(g, cell, 0, image, 0);
+            byte type = grid.getType(cell[0], cell[1], cell[2]);
+            if (grid.getType(image[0], image[1], image[2]) != type) {
+                return false;
+            }
+            if (type == VoxelGrid.PORTAL) {
+                // The image of the portal must lead to the image of its destination
+                int destination = grid.getPortalDestination(cell[0], cell[1], cell[2]);
+                grid.getCell(destination, cell);
+                transform(g, cell, 0, cell, 0);
+                if (grid.getPortalDestination(image[0], image[1], image[2]) != grid.getIndex(cell)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of symmetries, including the identity.
+     */
+    public int getOrder() {
+        return elements.length;
+    }
+
+    /**
+     * Returns the orientation of the given symmetry.
+     */
+    public int getElement(int index) {
+        return elements[index];
+    }
+
+    /**
+     * Rotates a cell about the center of the puzzle, reading three coordinates at inOffset and writing them at outOffset.
+     */
+    public void transform(int g, int[] in, int inOffset, int[] out, int outOffset) {
+        // Double the coordinates so the center of the puzzle is at the origin, even for even sizes
+        int s = size - 1;
+        from[0] = 2 * in[inOffset] - s;
+        from[1] = 2 * in[inOffset + 1] - s;
+        from[2] = 2 * in[inOffset + 2] - s;
+        Orientation.apply(g, from, to);
+        out[outOffset] = (to[0] + s) / 2;
+        out[outOffset + 1] = (to[1] + s) / 2;
+        out[outOffset + 2] = (to[2] + s) / 2;
+    }
+
+    /**
+     * Hashes the image of the state under each symmetry.
+     *
+     * @param hashes receives the hash of the image under each symmetry, in the order of {@link #getElement(int)}.
+     */
+    public void hash(int orientation, int[] cells, int count, StateEncoding encoding, long[] hashes) {
+        for (int e = 0; e < elements.length; e++) {
+            long hash = encoding.getOrientationKey(orientationImages[e][orientation]);
+            for (int i = 0; i < count; i++) {
+                hash ^= encoding.getCellKey(i, cellImages[e][encoding.getCell(cells, i)]);
+            }
+            hashes[e] = hash;
+        }
+    }
+
+    /**
+     * Updates the hashes of the images of a state after turning from one orientation to another.
+     */
+    public void turn(long[] hashes, int from, int to, StateEncoding encoding) {
+        for (int e = 0; e < elements.length; e++) {
+            hashes[e] ^= encoding.getOrientationKey(orientationImages[e][from]) ^ encoding.getOrientationKey(orientationImages[e][to]);
+        }
+    }
+
+    /**
+     * Updates the hashes of the images of a state after a launch moves ships from one set of cells to another.
+     */
+    public void launch(long[] hashes, int[] from, int[] to, int count, StateEncoding encoding) {
+        for (int i = 0; i < count; i++) {
+            int a = encoding.getCell(from, i);
+            int b = encoding.getCell(to, i);
+            if (a != b) {
+                for (int e = 0; e < elements.length; e++) {
+                    hashes[e] ^= encoding.getCellKey(i, cellImages[e][a]) ^ encoding.getCellKey(i, cellImages[e][b]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the canonical state equivalent to the given one, the image with the smallest hash.
+     *
+     * @param orientation the orientation of the state.
+     * @param cells the cells of the ships, three coordinates per ship.
+     * @param count the number of ships.
+     * @param hashes the hash of the image of the state under each symmetry.
+     * @param encoding encodes states for comparison.
+     * @param canonical receives the cells of the canonical state.
+     * @param key receives the encoding of the canonical state.
+     * @param scratch an encoding sized buffer for comparison.
+     * @return the index of the symmetry which maps the state to the canonical state, whose hash is hashes[index].
+     */
+    public int canonicalize(int orientation, int[] cells, int count, long[] hashes, StateEncoding encoding, int[] canonical, long[] key, long[] scratch) {
+        int best = 0;
+        for (int e = 1; e < elements.length; e++) {
+            if (hashes[e] < hashes[best]) {
+                best = e;
+            }
+        }
+        long min = hashes[best];
+        getImage(best, cells, count, canonical);
+        encoding.encode(orientationImages[best][orientation], canonical, key);
+        // Images with the same hash are almost always the same state, but the smallest encoding breaks a collision
+        for (int e = best + 1; e < elements.length; e++) {
+            if (hashes[e] != min) {
+                continue;
+            }
+            if (image.length < count * 3) {
+                image = new int[count * 3];
+            }
+            getImage(e, cells, count, image);
+            encoding.encode(orientationImages[e][orientation], image, scratch);
+            if (compare(scratch, key) < 0) {
+                best = e;
+                System.arraycopy(image, 0, canonical, 0, count * 3);
+                System.arraycopy(scratch, 0, key, 0, key.length);
+            }
+        }
+        return best;
+    }
+
+    private void getImage(int e, int[] cells, int count, int[] out) {
+        for (int i = 0; i < count; i++) {
+            transform(elements[e], cells, i * 3, out, i * 3);
+        }
+    }
+
+    private static int compare(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return Long.compare(a[i], b[i]);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import java.util.Arrays;
+
+/**
+ * Records the lowest score at which each state has been reached, in a fixed amount of memory.
+ *
+ * Entries are stored in primitive arrays with open addressing, probing a few slots from the state's hash. When every
+ * probed slot holds another state, the one reached with the lowest score is replaced; a breadth first search has long
+ * since moved past it, so it is the least likely to be reached again. Losing an entry only means a state may be
+ * explored twice, never that a lower score is missed.
+ */
+public class TranspositionTable {
+
+    private static final int PROBES = 8;
+    private static final int EMPTY = -1;
+
+    private final int words;
+    private final int mask;
+    private final long[] keys;
+    private final int[] scores;
+    private int size;
+    private int evictions;
+
+    /**
+     * @param words the number of longs in an encoded state.
+     * @param maxBytes the memory the table may use.
+     */
+    public TranspositionTable(int words, long maxBytes) {
+        this.words = words;
+        long entries = Math.max(PROBES, maxBytes / (words * 8 + 4));
+        // Largest power of two which fits
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        mask = capacity - 1;
+        keys = new long[capacity * words];
+        scores = new int[capacity];
+        Arrays.fill(scores, EMPTY);
+    }
+
+    /**
+     * Returns the lowest score recorded for the given state, or -1 if it isn't in the table.
+     */
+    public int get(long hash, long[] key) {
+        int slot = getSlot(hash);
+        for (int p = 0; p < PROBES; p++) {
+            int s = (slot + p) & mask;
+            if (scores[s] == EMPTY) {
+                return EMPTY;
+            }
+            if (matches(s, key)) {
+                return scores[s];
+            }
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Records reaching the given state with the given score.
+     *
+     * @return true if the state is new or the score is lower than any recorded, false if it was already reached with a
+     * score at least as low.
+     */
+    public boolean update(long hash, long[] key, int score) {
+        int slot = getSlot(hash);
+        int victim = -1;
+        for (int p = 0; p < PROBES; p++) {
+            int s = (slot + p) & mask;
+            if (scores[s] == EMPTY) {
+                store(s, key, score);
+                size++;
+                return true;
+            }
+            if (matches(s, key)) {
+                if (scores[s] <= score) {
+                    return false;
+                }
+                scores[s] = score;
+                return true;
+            }
+            if (victim < 0 || scores[s] < scores[victim]) {
+                victim = s;
+            }
+        }
+        store(victim, key, score);
+        evictions++;
+        return true;
+    }
+
+    private int getSlot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private boolean matches(int slot, long[] key) {
+        int base = slot * words;
+        for (int w = 0; w < words; w++) {
+            if (keys[base + w] != key[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void store(int slot, long[] key, int score) {
+        System.arraycopy(key, 0, keys, slot * words, words);
+        scores[slot] = score;
+    }
+
+    public int getCapacity() {
+        return scores.length;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getEvictions() {
+        return evictions;
+    }
+
+    public void clear() {
+        Arrays.fill(scores, EMPTY);
+        size = 0;
+        evictions = 0;
+    }
+}
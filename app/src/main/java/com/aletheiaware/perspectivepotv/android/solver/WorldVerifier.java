@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import com.aletheiaware.perspective.PerspectiveProto.Puzzle;
+import com.aletheiaware.perspective.PerspectiveProto.World;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Solves every puzzle of every world in parallel, and compares the minimum scores to the targets.
+ *
+ * Usage: WorldVerifier [--max-states N] [--memory MB] [world directory or .pb files...]
+ *
+ * Prints a tab separated table with a header row, one row per puzzle;
+ * world, puzzle, target, optimal, status, states, millis
+ * where status is one of;
+ * - optimal; the target is the minimum score.
+ * - generous; the target is above the minimum score.
+ * - impossible; the target is below the minimum score.
+ * - unreachable; no sequence of moves wins the puzzle.
+ * - unknown; the search gave up before finding a solution.
+ * Exits with status 1 if any puzzle is impossible, unreachable or unknown.
+ */
+public class WorldVerifier {
+
+    private static final String DEFAULT_WORLDS = "src/main/assets/world";
+
+    public static void main(String[] args) throws Exception {
+        int maxStates = -1;
+        long maxMemory = -1;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--max-states") && i + 1 < args.length) {
+                maxStates = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--memory") && i + 1 < args.length) {
+                maxMemory = Long.parseLong(args[++i]) * 1024 * 1024;
+            } else {
+                addWorlds(new File(args[i]), files);
+            }
+        }
+        if (files.isEmpty()) {
+            addWorlds(new File(DEFAULT_WORLDS), files);
+        }
+        if (files.isEmpty()) {
+            System.err.println("No worlds found");
+            System.exit(1);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        List<WorldTask> tasks = new ArrayList<>();
+        for (File f : files) {
+            WorldTask task = new WorldTask(f, maxStates, maxMemory);
+            tasks.add(task);
+            pool.execute(task);
+        }
+
+        System.out.println("world\tpuzzle\ttarget\toptimal\tstatus\tstates\tmillis");
+        boolean failed = false;
+        for (WorldTask task : tasks) {
+            for (String[] row : task.join()) {
+                System.out.println(join(row));
+                switch (row[4]) {
+                    case "impossible":
+                    case "unreachable":
+                    case "unknown":
+                    case "error":
+                        failed = true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        pool.shutdown();
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static void addWorlds(File file, List<File> files) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File c : children) {
+                    if (c.getName().endsWith(".pb")) {
+                        files.add(c);
+                    }
+                }
+            }
+        } else if (file.isFile()) {
+            files.add(file);
+        }
+    }
+
+    private static String join(String[] row) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                sb.append('\t');
+            }
+            sb.append(row[i]);
+        }
+        return sb.toString();
+    }
+
+    // Loads a world and solves each of its puzzles as a subtask
+    private static class WorldTask extends RecursiveTask<List<String[]>> {
+        private final File file;
+        private final int maxStates;
+        private final long maxMemory;
+
+        WorldTask(File file, int maxStates, long maxMemory) {
+            this.file = file;
+            this.maxStates = maxStates;
+            this.maxMemory = maxMemory;
+        }
+
+        @Override
+        protected List<String[]> compute() {
+            String name = file.getName().replace(".pb", "");
+            List<String[]> rows = new ArrayList<>();
+            World world;
+            try (InputStream in = new FileInputStream(file)) {
+                world = PerspectiveUtils.readWorld(in);
+            } catch (IOException e) {
+                rows.add(new String[] {name, "-", "-", "-", "error", "-", e.getMessage()});
+                return rows;
+            }
+            List<PuzzleTask> tasks = new ArrayList<>();
+            for (int i = 1; i <= world.getPuzzleCount(); i++) {
+                tasks.add(new PuzzleTask(name, i, PerspectiveUtils.getPuzzle(world, i), world.getSize(), maxStates, maxMemory));
+            }
+            invokeAll(tasks);
+            for (PuzzleTask t : tasks) {
+                rows.add(t.join());
+            }
+            return rows;
+        }
+    }
+
+    private static class PuzzleTask extends RecursiveTask<String[]> {
+        private final String world;
+        private final int index;
+        private final Puzzle puzzle;
+        private final int size;
+        private final int maxStates;
+        private final long maxMemory;
+
+        PuzzleTask(String world, int index, Puzzle puzzle, int size, int maxStates, long maxMemory) {
+            this.world = world;
+            this.index = index;
+            this.puzzle = puzzle;
+            this.size = size;
+            this.maxStates = maxStates;
+            this.maxMemory = maxMemory;
+        }
+
+        @Override
+        protected String[] compute() {
+            int target = puzzle.getTarget();
+            long start = System.nanoTime();
+            try {
+                Solver solver = Solver.create(puzzle, size);
+                if (maxStates > 0) {
+                    solver.setMaxStates(maxStates);
+                }
+                if (maxMemory > 0) {
+                    solver.setMaxMemory(maxMemory);
+                }
+                Solver.Result result = solver.solve();
+                long millis = (System.nanoTime() - start) / 1000000;
+                String status;
+                if (result.solved) {
+                    if (result.score == target) {
+                        status = "optimal";
+                    } else if (result.score < target) {
+                        status = "generous";
+                    } else {
+                        status = "impossible";
+                    }
+                } else if (result.complete) {
+                    status = "unreachable";
+                } else {
+                    status = "unknown";
+                }
+                return new String[] {world, Integer.toString(index), Integer.toString(target), result.solved ? Integer.toString(result.score) : "-", status, Integer.toString(result.states), Long.toString(millis)};
+            } catch (Exception e) {
+                e.printStackTrace();
+                long millis = (System.nanoTime() - start) / 1000000;
+                return new String[] {world, Integer.toString(index), Integer.toString(target), "-", "error", "-", Long.toString(millis)};
+            }
+        }
+    }
+}
@@ -31,7 +31,6 @@ import android.widget.ScrollView;
 import android.widget.SeekBar;
 import android.widget.Spinner;
 
-import com.aletheiaware.joy.JoyProto.Mesh;
 import com.aletheiaware.joy.JoyProto.Shader;
 import com.aletheiaware.joy.android.scene.GLCameraNode;
 import com.aletheiaware.joy.android.scene.GLColourAttribute;
@@ -43,22 +42,23 @@ import com.aletheiaware.joy.android.scene.GLProgramNode;
 import com.aletheiaware.joy.android.scene.GLScene;
 import com.aletheiaware.joy.android.scene.GLTextureAttribute;
 import com.aletheiaware.joy.android.scene.GLUtils;
-import com.aletheiaware.joy.android.scene.GLVertexNormalTextureMesh;
-import com.aletheiaware.joy.android.scene.GLVertexNormalTextureMeshNode;
 import com.aletheiaware.joy.scene.Animation;
 import com.aletheiaware.joy.scene.Attribute;
 import com.aletheiaware.joy.scene.AttributeNode;
 import com.aletheiaware.joy.scene.Matrix;
 import com.aletheiaware.joy.scene.MatrixTransformationNode;
-import com.aletheiaware.joy.scene.MeshLoader;
 import com.aletheiaware.joy.scene.ScaleNode;
 import com.aletheiaware.joy.scene.Scene;
 import com.aletheiaware.joy.scene.TranslateNode;
 import com.aletheiaware.joy.scene.Vector;
 import com.aletheiaware.perspective.utils.PerspectiveUtils;
 import com.aletheiaware.perspectivepotv.android.R;
+import com.aletheiaware.perspectivepotv.android.scene.InterleavedMeshNode;
+import com.aletheiaware.perspectivepotv.android.utils.AssetManifest;
+import com.aletheiaware.perspectivepotv.android.utils.AssetScheduler;
+import com.aletheiaware.perspectivepotv.android.utils.MeshCache;
+import com.aletheiaware.perspectivepotv.android.utils.MeshRepository;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -97,6 +97,7 @@ public class DebugActivity extends AppCompatActivity {
     private String textureName;
     private DebugView debugView;
     private GLScene scene;
+    private MeshRepository meshRepository;
     private MatrixTransformationNode rotation;
 
     @Override
@@ -250,77 +251,38 @@ public class DebugActivity extends AppCompatActivity {
         });
         debugView = findViewById(R.id.debug_view);
         scene = new GLScene();
+        meshRepository = new MeshRepository(scene, getAssets(), MeshCache.getInstance(this));
         debugView.setScene(scene);
+        debugView.setMeshes(meshRepository);
 
         new Thread() {
             @Override
             public void run() {
                 final AssetManager assets = getAssets();
-                try {
-                    String[] dir = assets.list("/");
-                    if (dir != null) {
-                        for (String d : dir) {
-                            String[] file = assets.list("/"+d);
-                            if (file != null) {
-                                for (String f : file) {
-                                    System.out.println("Asset: " + d + "/" + f);
-                                }
-                            }
-                        }
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-                try {
-                    String[] musics = assets.list("music/");
-                    if (musics != null) {
-                        for (String s : musics) {
-                            System.out.println("Music Name: " + s);
-                            musicAdapter.add(s);
-                        }
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
+                AssetManifest manifest = AssetManifest.getInstance(assets);
+                for (AssetManifest.Entry e : manifest.getEntries(AssetManifest.TYPE_MUSIC)) {
+                    System.out.println("Music Name: " + e.name);
+                    musicAdapter.add(e.name);
                 }
-                try {
-                    String[] sounds = assets.list("sound/");
-                    if (sounds != null) {
-                        for (String s : sounds) {
-                            System.out.println("Sound Name: " + s);
-                            try (AssetFileDescriptor fd = assets.openFd("sound/" + s)){
-                                int id = soundPool.load(fd, 1);
-                                System.out.println("Sound ID: " + id);
-                                soundMap.put(s, id);
-                                soundAdapter.add(s);
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-                        }
+                for (AssetManifest.Entry e : manifest.getEntries(AssetManifest.TYPE_SOUND)) {
+                    String s = e.name;
+                    System.out.println("Sound Name: " + s);
+                    try (AssetFileDescriptor fd = assets.openFd(e.path)){
+                        int id = soundPool.load(fd, 1);
+                        System.out.println("Sound ID: " + id);
+                        soundMap.put(s, id);
+                        soundAdapter.add(s);
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
                     }
-                } catch (IOException e) {
-                    e.printStackTrace();
                 }
-                try {
-                    String[] meshes = assets.list("mesh/");
-                    if (meshes != null) {
-                        for (String m : meshes) {
-                            System.out.println("Mesh Name: " + m);
-                            meshAdapter.add(m);
-                        }
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
+                for (AssetManifest.Entry e : manifest.getEntries(AssetManifest.TYPE_MESH)) {
+                    System.out.println("Mesh Name: " + e.name);
+                    meshAdapter.add(e.name);
                 }
-                try {
-                    String[] textures = assets.list("texture/");
-                    if (textures != null) {
-                        for (String t : textures) {
-                            System.out.println("Texture Name: " + t);
-                            textureAdapter.add(t);
-                        }
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
+                for (AssetManifest.Entry e : manifest.getEntries(AssetManifest.TYPE_TEXTURE)) {
+                    System.out.println("Texture Name: " + e.name);
+                    textureAdapter.add(e.name);
                 }
                 float size = 1.0f;
                 float distance = 1.5f;
@@ -491,6 +453,13 @@ public class DebugActivity extends AppCompatActivity {
 
     @Override
     protected void onDestroy() {
+        AssetScheduler.getInstance().cancel(scene);
+        debugView.queueEvent(new Runnable() {
+            @Override
+            public void run() {
+                meshRepository.release();
+            }
+        });
         if (mediaPlayer != null) {
             mediaPlayer.release();
             mediaPlayer = null;
@@ -549,7 +518,12 @@ public class DebugActivity extends AppCompatActivity {
                     mediaPlayer.stop();
                     mediaPlayer.release();
                 }
-                AssetFileDescriptor afd = getAssets().openFd("music/" + musicName);
+                AssetManifest.Entry music = AssetManifest.getInstance(getAssets()).getEntry(AssetManifest.TYPE_MUSIC, musicName);
+                if (music == null) {
+                    System.out.println("Missing music: " + musicName);
+                    return;
+                }
+                AssetFileDescriptor afd = getAssets().openFd(music.path);
                 mediaPlayer = createMediaPlayer();
                 mediaPlayer.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
                 mediaPlayer.prepare();
@@ -614,7 +588,7 @@ public class DebugActivity extends AppCompatActivity {
         if (meshName == null || meshName.equals("")) {
             System.out.println("No mesh name");
         } else {
-            GLVertexNormalTextureMeshNode meshNode = new GLVertexNormalTextureMeshNode(program, meshName);
+            InterleavedMeshNode meshNode = new InterleavedMeshNode(program, meshName, meshRepository);
             attributeNode.addChild(meshNode);
 
             TranslateNode translateFrontNode = new TranslateNode("front");
@@ -641,19 +615,7 @@ public class DebugActivity extends AppCompatActivity {
             translateRightNode.addChild(scaleRightNode);
             scaleRightNode.addChild(meshNode);
 
-            if (scene.getVertexNormalTextureMesh(meshName) == null) {
-                try {
-                    new MeshLoader(getAssets().open("mesh/" + meshName)) {
-                        @Override
-                        public void onMesh(Mesh mesh) throws IOException {
-                            System.out.println("Loaded Mesh: " + mesh.getName());
-                            scene.putVertexNormalTextureMesh(meshName, new GLVertexNormalTextureMesh(mesh));
-                        }
-                    }.start();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+            meshRepository.load(meshName);
         }
     }
 }
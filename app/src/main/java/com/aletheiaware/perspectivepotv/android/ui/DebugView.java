@@ -22,6 +22,7 @@ import android.util.AttributeSet;
 
 import com.aletheiaware.joy.android.scene.GLAntiAliasConfigChooser;
 import com.aletheiaware.joy.android.scene.GLScene;
+import com.aletheiaware.perspectivepotv.android.utils.MeshRepository;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -29,6 +30,7 @@ import javax.microedition.khronos.opengles.GL10;
 public class DebugView extends GLSurfaceView implements GLSurfaceView.Renderer {
 
     private GLScene scene;
+    private MeshRepository meshes;
 
     public DebugView(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -42,8 +44,15 @@ public class DebugView extends GLSurfaceView implements GLSurfaceView.Renderer {
         this.scene = scene;
     }
 
+    public void setMeshes(MeshRepository meshes) {
+        this.meshes = meshes;
+    }
+
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+        if (meshes != null) {
+            meshes.onSurfaceCreated();
+        }
         if (scene != null) {
             scene.onSurfaceCreated(gl, config);
         }
@@ -40,7 +40,6 @@ import com.aletheiaware.joy.android.scene.GLScene;
 import com.aletheiaware.joy.scene.Animation;
 import com.aletheiaware.joy.scene.Vector;
 import com.aletheiaware.perspective.Perspective;
-import com.aletheiaware.perspective.Perspective.Element;
 import com.aletheiaware.perspective.PerspectiveProto.Dialog;
 import com.aletheiaware.perspective.PerspectiveProto.Move;
 import com.aletheiaware.perspective.PerspectiveProto.Puzzle;
@@ -49,22 +48,39 @@ import com.aletheiaware.perspective.PerspectiveProto.World;
 import com.aletheiaware.perspective.utils.PerspectiveUtils;
 import com.aletheiaware.perspectivepotv.android.R;
 import com.aletheiaware.perspectivepotv.android.billing.BillingManager;
+import com.aletheiaware.perspectivepotv.android.game.ElementIndex;
+import com.aletheiaware.perspectivepotv.android.game.LaunchOutcome;
+import com.aletheiaware.perspectivepotv.android.game.LaunchPrediction;
+import com.aletheiaware.perspectivepotv.android.game.LaunchPredictor;
+import com.aletheiaware.perspectivepotv.android.game.LaunchSimulation;
+import com.aletheiaware.perspectivepotv.android.game.LaunchTrajectory;
+import com.aletheiaware.perspectivepotv.android.game.Orientation;
+import com.aletheiaware.perspectivepotv.android.scene.Clock;
 import com.aletheiaware.perspectivepotv.android.scene.FogFadeAnimation;
+import com.aletheiaware.perspectivepotv.android.scene.FrameClock;
 import com.aletheiaware.perspectivepotv.android.scene.LaunchAnimation;
 import com.aletheiaware.perspectivepotv.android.scene.ShipFaceAttribute;
+import com.aletheiaware.perspectivepotv.android.solver.HintEngine;
+import com.aletheiaware.perspectivepotv.android.utils.AssetManifest;
+import com.aletheiaware.perspectivepotv.android.utils.AssetScheduler;
+import com.aletheiaware.perspectivepotv.android.utils.MeshCache;
+import com.aletheiaware.perspectivepotv.android.utils.MeshRepository;
 import com.aletheiaware.perspectivepotv.android.utils.PerspectiveAndroidUtils;
+import com.aletheiaware.perspectivepotv.android.utils.PuzzleHashCache;
+import com.aletheiaware.perspectivepotv.android.utils.Trace;
+import com.aletheiaware.perspectivepotv.android.utils.WorldSummary;
 
 import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.UiThread;
@@ -120,10 +136,22 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
 
     private final int[] shipEmotion = new int[1];
 
+    private final LaunchPredictor predictor = new LaunchPredictor();
+    // Storage reused by every launch, so launching doesn't allocate on the UI thread
+    private final int[] launchUp = new int[3];
+    private final int[] launchAxis = new int[3];
+    private final float[][] snapScratch = Orientation.createSnapScratch();
+    private final FrameClock clock = new FrameClock(Clock.SYSTEM);
+    private final HintEngine hints = new HintEngine();
+
     public AlertDialog gameOverDialog;
     public AlertDialog gameMenuDialog;
     public AlertDialog gameDialogDialog;
+    public AlertDialog gameHintDialog;
     public CountDownLatch loadLatch;
+    // Meshes added while importing the current puzzle, only accessed by the loading task
+    private final Set<String> puzzleMeshes = new HashSet<>();
+    private MeshRepository meshRepository;
     private String worldName;
     private int puzzleIndex;
     private boolean outlineEnabled;
@@ -137,6 +165,9 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
     private TextView gameMoveCountText;
     private GLScene glScene;
     private Perspective perspective;
+    private ElementIndex index;
+    private LaunchSimulation simulation;
+    private LaunchAnimation launchAnimation;
     private SharedPreferences preferences;
     private Vibrator vibrator;
     private BillingManager manager;
@@ -215,6 +246,7 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
                 super.setAnimation(a);
             }
         };
+        meshRepository = new MeshRepository(glScene, getAssets(), MeshCache.getInstance(this));
         glScene.setFrameCallback(new GLScene.FrameCallback() {
             @Override
             public boolean onFrame() {
@@ -228,54 +260,27 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
         });
 
         final AssetManager assets = getAssets();
-        // List Assets
-        new Thread() {
-            @Override
-            public void run() {
-                try {
-                    String[] dir = assets.list("/");
-                    if (dir != null) {
-                        for (String d : dir) {
-                            String[] file = assets.list("/" + d);
-                            if (file != null) {
-                                for (String f : file) {
-                                    System.out.println("Asset: " + d + "/" + f);
-                                }
-                            }
-                        }
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }.start();
-
+        final AssetScheduler scheduler = AssetScheduler.getInstance();
         // Load Sound Effects
-        new Thread() {
+        scheduler.submit(this, AssetScheduler.LANE_SOUND, new Runnable() {
             @Override
             public void run() {
-                try {
-                    String[] sounds = assets.list("sound/");
-                    if (sounds != null) {
-                        for (String s : sounds) {
-                            System.out.println("Sound Name: " + s);
-                            try (AssetFileDescriptor fd = assets.openFd("sound/" + s)) {
-                                int id = soundPool.load(fd, 1);
-                                System.out.println("Sound ID: " + id);
-                                glScene.putIntArray(s, new int[]{id});
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-                        }
+                for (AssetManifest.Entry e : AssetManifest.getInstance(assets).getEntries(AssetManifest.TYPE_SOUND)) {
+                    String s = e.name;
+                    System.out.println("Sound Name: " + s);
+                    try (AssetFileDescriptor fd = assets.openFd(e.path)) {
+                        int id = soundPool.load(fd, 1);
+                        System.out.println("Sound ID: " + id);
+                        glScene.putIntArray(s, new int[]{id});
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
                     }
-                } catch (IOException e) {
-                    e.printStackTrace();
                 }
             }
-        }.start();
+        });
 
         // Load World, Scene, and Perspective in Worker Thread
-        new Thread() {
+        scheduler.submit(this, AssetScheduler.LANE_VISIBLE, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -314,6 +319,8 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
                             setContentView(R.layout.activity_game);
                             gameView = findViewById(R.id.game_view);
                             gameView.setScene(glScene);
+                            gameView.setMeshes(meshRepository);
+                            gameView.setClock(clock);
                             gameView.setPerspective(perspective);
                             gameMenuCard = findViewById(R.id.game_menu_card);
                             gameMenuButton = findViewById(R.id.game_menu_button);
@@ -341,7 +348,7 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
                     e.printStackTrace();
                 }
             }
-        }.start();
+        });
     }
 
     @Override
@@ -375,11 +382,16 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
         super.onResume();
         if (preferences.getBoolean(getString(R.string.preference_puzzle_music_key), true)) {
             // Load Background Music
-            new Thread() {
+            AssetScheduler.getInstance().submit(this, AssetScheduler.LANE_SOUND, new Runnable() {
                 @Override
                 public void run() {
+                    AssetManifest.Entry music = AssetManifest.getInstance(getAssets()).getEntry(AssetManifest.TYPE_MUSIC, THEME_MUSIC);
+                    if (music == null) {
+                        Log.e(PerspectiveUtils.TAG, "Missing music: " + THEME_MUSIC);
+                        return;
+                    }
                     try {
-                        AssetFileDescriptor afd = getAssets().openFd("music/" + THEME_MUSIC);
+                        AssetFileDescriptor afd = getAssets().openFd(music.path);
                         mediaPlayer = createMediaPlayer();
                         mediaPlayer.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
                         mediaPlayer.prepare();
@@ -390,7 +402,7 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
                         e.printStackTrace();
                     }
                 }
-            }.start();
+            });
         } else {
             Log.d(PerspectiveUtils.TAG, "Music FX Disabled");
         }
@@ -407,7 +419,17 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
 
     @Override
     protected void onDestroy() {
+        // Drop any loading for this activity and its scene
+        AssetScheduler.getInstance().cancel(this);
+        AssetScheduler.getInstance().cancel(glScene);
         if (gameView != null) {
+            // Delete the mesh buffers on the GL thread, where the context is current
+            gameView.queueEvent(new Runnable() {
+                @Override
+                public void run() {
+                    meshRepository.release();
+                }
+            });
             gameView.quit();
             gameView = null;
         }
@@ -419,6 +441,8 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
             soundPool.release();
             soundPool = null;
         }
+        predictor.shutdown();
+        hints.shutdown();
         super.onDestroy();
     }
 
@@ -486,19 +510,27 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
     @UiThread
     private void loadPuzzle() {
         Log.d(PerspectiveUtils.TAG, "Loading Puzzle: " + puzzleIndex);
-        new Thread() {
+        AssetScheduler.getInstance().submit(this, AssetScheduler.LANE_VISIBLE, new Runnable() {
             @Override
             public void run() {
                 final Puzzle puzzle = PerspectiveUtils.getPuzzle(world, puzzleIndex);
                 if (puzzle != null) {
+                    puzzleMeshes.clear();
                     perspective.importPuzzle(puzzle);
+                    // The scene is renderable once every mesh of the puzzle is loaded
+                    final AssetScheduler.Task<Void> meshesLoaded = meshRepository.awaitAll(puzzleMeshes);
+                    index = ElementIndex.create(perspective, glScene);
+                    simulation = new LaunchSimulation(index.grid);
+                    launchAnimation = createLaunchAnimation();
+                    predictor.reset(index.grid);
+                    predict();
                     checkDialogs();
                     blastEnabled[0] = 0;
                     shipEmotion[0] = ShipFaceAttribute.SHIP_FACE_HAPPY;
                     fogIntensity[0] = 1.5f;
                     float fogStart = fogIntensity[0];
                     float fogEnd = getWorldFog();
-                    glScene.setAnimation(new FogFadeAnimation(fogIntensity, fogStart, fogEnd));
+                    glScene.setAnimation(new FogFadeAnimation(clock, fogIntensity, fogStart, fogEnd));
                     final String name = CommonUtils.capitalize(world.getName()) + " - " + puzzleIndex;
                     final String title = CommonUtils.capitalize(world.getTitle());
                     final String description = puzzle.getDescription();
@@ -528,12 +560,29 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
                             } else {
                                 descriptionText.setVisibility(View.GONE);
                             }
-                            loadLatch.countDown();
+                            meshesLoaded.addListener(new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        meshesLoaded.get();
+                                    } catch (InterruptedException | CancellationException e) {
+                                        // Loading was abandoned, such as when the activity is destroyed
+                                        return;
+                                    } catch (ExecutionException e) {
+                                        Throwable cause = e.getCause();
+                                        CommonAndroidUtils.showErrorDialog(GameActivity.this, R.style.ErrorDialogTheme, R.string.error_load_puzzle, cause instanceof Exception ? (Exception) cause : e);
+                                        e.printStackTrace();
+                                        return;
+                                    }
+                                    Log.d(PerspectiveUtils.TAG, "Puzzle Loaded: " + puzzleIndex);
+                                    loadLatch.countDown();
+                                }
+                            });
                         }
                     });
                 }
             }
-        }.start();
+        });
     }
 
     private int colourStringToInt(String colour) {
@@ -588,7 +637,8 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
                 }
             }
             for (int i = 0; i < limit; i++) {
-                PerspectiveAndroidUtils.addSceneGraphNode(glScene, perspective, getAssets(), shaders[i], name, type, meshes[i], colours[i], textures[i], materials[i]);
+                puzzleMeshes.add(meshes[i]);
+                PerspectiveAndroidUtils.addSceneGraphNode(glScene, perspective, getAssets(), meshRepository, shaders[i], name, type, meshes[i], colours[i], textures[i], materials[i]);
             }
         } catch (IOException e) {
             CommonAndroidUtils.showErrorDialog(this, R.style.ErrorDialogTheme, R.string.error_get_scene_graph_node, e);
@@ -603,132 +653,135 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
 
     public void launch() {
         synchronized (glScene) {
-            if (!glScene.hasAnimation()) {
-                System.out.println("launch");
-                if (perspective.inverseRotation.makeInverse(perspective.mainRotation)) {
-                    // TODO improve this - creating new sets and maps each time is expensive
-                    Map<String, Vector> blocks = new HashMap<>();
-                    List<Element> bs = perspective.getElements("block");
-                    if (bs != null) {
-                        for (Element b : bs) {
-                            blocks.put(b.name, glScene.getVector(b.name));
-                        }
-                    }
-                    final Map<String, Vector> goals = new HashMap<>();
-                    List<Element> gs = perspective.getElements("goal");
-                    if (gs != null) {
-                        for (Element g : gs) {
-                            goals.put(g.name, glScene.getVector(g.name));
-                        }
-                    }
-                    final Map<String, Vector> spheres = new HashMap<>();
-                    List<Element> ss = perspective.getElements("sphere");
-                    if (ss != null) {
-                        for (Element s : ss) {
-                            if (s.name.startsWith("s")) {
-                                spheres.put(s.name, glScene.getVector(s.name));
-                            } else {
-                                System.out.println("Ignoring Sphere: " + s.name);
-                            }
-                        }
-                    }
-                    glScene.setAnimation(new LaunchAnimation(perspective.size, perspective.inverseRotation, perspective.up, blocks, goals, perspective.linkedPortals, spheres) {
-                        @Override
-                        public void onBegin() {
-                            vibrate(LAUNCH_VIBRATION);
-                            sound(LAUNCH_SOUND);
-                            blastEnabled[0] = 1;
-                        }
+            if (!glScene.hasAnimation() && simulation != null && launchAnimation != null) {
+                // After rotateToAxis the puzzle is in one of the cube orientations, so the launch axis is exact
+                int orientation = Orientation.snap(perspective.mainRotation, snapScratch);
+                int[] axis = Orientation.getLaunchAxis(orientation, Orientation.toAxis(perspective.up, launchUp), launchAxis);
+                ElementIndex spheres = index;
+                spheres.updateSphereCells();
+                // Animate the predicted launch if there is one, and only simulate it here if there isn't
+                LaunchTrajectory trajectory = simulation;
+                LaunchOutcome outcome = null;
+                LaunchPrediction prediction = predictor.getPrediction(axis, spheres.sphereCells, spheres.shipCount);
+                if (prediction == null) {
+                    simulation.simulate(axis, spheres.sphereNames, spheres.sphereCells, spheres.shipCount);
+                } else {
+                    trajectory = prediction;
+                    outcome = prediction.outcome;
+                }
+                launchAnimation.reset(trajectory, outcome);
+                glScene.setAnimation(launchAnimation);
+            }
+        }
+    }
 
-                        @Override
-                        public void onBlastComplete() {
-                            System.out.println("onBlastComplete");
-                            blastEnabled[0] = 0;
-                            // TODO Stop LAUNCH_SOUND and LAUNCH_VIBRATION if still active
-                        }
+    // Creates the animation used for every launch in the current puzzle
+    private LaunchAnimation createLaunchAnimation() {
+        final ElementIndex spheres = index;
+        return new LaunchAnimation(clock, spheres) {
+            @Override
+            public void onBegin() {
+                vibrate(LAUNCH_VIBRATION);
+                sound(LAUNCH_SOUND);
+                blastEnabled[0] = 1;
+            }
 
-                        @Override
-                        public void onBlockHit(String asteroid) {
-                            System.out.println("onBlockHit: " + asteroid);
-                            vibrate(LANDING_VIBRATION);
-                            sound(LANDING_SOUND);
-                        }
+            @Override
+            public void onBlastComplete() {
+                blastEnabled[0] = 0;
+                // TODO Stop LAUNCH_SOUND and LAUNCH_VIBRATION if still active
+            }
 
-                        @Override
-                        public void onOutlineCrossed() {
-                            System.out.println("onOutlineCrossed");
-                            // Ship moved out of bounds, change face to sad
-                            shipEmotion[0] = ShipFaceAttribute.SHIP_FACE_SAD;
-                        }
+            @Override
+            public void onBlockHit(String asteroid) {
+                vibrate(LANDING_VIBRATION);
+                sound(LANDING_SOUND);
+            }
 
-                        @Override
-                        public void onPortalTraversed() {
-                            System.out.println("onPortalTraversed");
-                            vibrate(PORTAL_VIBRATION);
-                            sound(PORTAL_SOUND);
-                        }
+            @Override
+            public void onSphereHit(String sphere) {
+                // Ships landing on each other land as they would on an asteroid
+                vibrate(LANDING_VIBRATION);
+                sound(LANDING_SOUND);
+            }
 
-                        @Override
-                        public boolean tick() {
-                            blastRandom[0] = (float)((System.currentTimeMillis()/100.0)%1.0);
-                            System.out.println("Blast Random: " + blastRandom[0]);
-                            return super.tick();
-                        }
+            @Override
+            public void onOutlineCrossed() {
+                // Ship moved out of bounds, change face to sad
+                shipEmotion[0] = ShipFaceAttribute.SHIP_FACE_SAD;
+            }
 
-                        @Override
-                        public void onComplete() {
-                            boolean gameLost = false;
-                            boolean gameWon = true;
-                            for (Entry<String, Vector> s : spheres.entrySet()) {
-                                String k = s.getKey();
-                                Vector v = s.getValue();
-                                if (PerspectiveUtils.isOutOfBounds(v, perspective.size)) {
-                                    // if any spheres are out of bounds - game over
-                                    gameLost = true;
-                                } else if (!goals.containsValue(v)) {
-                                    // if all spheres are in the goals - game won
-                                    gameWon = false;
-                                }
-                                System.out.println("Move: " + k + " " + v);
-                                perspective.solution.addMove(Move.newBuilder()
-                                        .setKey(k)
-                                        .setValue(PerspectiveUtils.vectorToLocation(v))
-                                        .build());
-                            }
-                            if (gameLost) {
-                                perspective.gameOver = true;
-                                perspective.gameWon = false;
-                                onGameLost();
-                            } else if (gameWon) {
-                                perspective.gameOver = true;
-                                perspective.gameWon = true;
-                                onGameWon();
-                            } else {
-                                checkDialogs();
-                            }
-                        }
-                    });
+            @Override
+            public void onPortalTraversed() {
+                vibrate(PORTAL_VIBRATION);
+                sound(PORTAL_SOUND);
+            }
+
+            @Override
+            public boolean tick() {
+                // Cycle every 100ms, nanos may be negative
+                long cycle = 100000000L;
+                blastRandom[0] = (((getClock().getNanos() % cycle) + cycle) % cycle) / (float) cycle;
+                if (Trace.VERBOSE) {
+                    Trace.event(Trace.LEVEL_VERBOSE, Trace.EVENT_BLAST_RANDOM, Float.floatToIntBits(blastRandom[0]), 0, 0, 0, null);
+                }
+                return super.tick();
+            }
+
+            @Override
+            public void onComplete() {
+                LaunchOutcome outcome = getOutcome();
+                boolean gameLost = outcome.lost;
+                boolean gameWon = outcome.won;
+                for (int i = 0; i < spheres.shipCount; i++) {
+                    String k = spheres.sphereNames[i];
+                    Vector v = spheres.spheres[i];
+                    perspective.solution.addMove(Move.newBuilder()
+                            .setKey(k)
+                            .setValue(PerspectiveUtils.vectorToLocation(v))
+                            .build());
+                }
+                if (gameLost) {
+                    perspective.gameOver = true;
+                    perspective.gameWon = false;
+                    onGameLost();
+                } else if (gameWon) {
+                    perspective.gameOver = true;
+                    perspective.gameWon = true;
+                    onGameWon();
                 } else {
-                    System.err.println("Matrix invert failed");
+                    checkDialogs();
+                    predict();
                 }
             }
+        };
+    }
+
+    private void predict() {
+        ElementIndex i = index;
+        if (i == null) {
+            return;
+        }
+        // Sphere cells are shared with launch and hint, which update them under the same lock
+        synchronized (glScene) {
+            i.updateSphereCells();
+            predictor.predict(i.sphereNames, i.sphereCells, i.shipCount);
         }
     }
 
     private void checkDialogs() {
-        List<String> dialogs = new ArrayList<>();
-        List<Element> ss = perspective.getElements("sphere");
-        if (ss != null) {
-            for (Element s : ss) {
-                Vector location = glScene.getVector(s.name);
-                for (String d : perspective.dialogs.keySet()) {
-                    if (location.equals(glScene.getVector(d))) {
-                        dialogs.add(d);
+        List<String> dialogs = null;
+        for (Vector location : index.spheres) {
+            for (int i = 0; i < index.dialogs.length; i++) {
+                if (location.equals(index.dialogs[i])) {
+                    if (dialogs == null) {
+                        dialogs = new ArrayList<>();
                     }
+                    dialogs.add(index.dialogNames[i]);
                 }
             }
         }
-        if (dialogs.size() > 0) {
+        if (dialogs != null) {
             Collections.sort(dialogs, new Comparator<String>() {
                 public int compare(String o1, String o2) {
                     return extractInt(o1) - extractInt(o2);
@@ -854,6 +907,7 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
         Log.d(PerspectiveUtils.TAG, "Turn Complete");
         vibrate(TURN_VIBRATION);
         sound(TURN_SOUND);
+        predict();
         runOnUiThread(new Runnable() {
             @Override
             public void run() {
@@ -923,18 +977,21 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
         Log.d(PerspectiveUtils.TAG, "Score: " + score + " (" + target + ")");
         final int stars = PerspectiveUtils.scoreToStars(score, target);
         Log.d(PerspectiveUtils.TAG, "Stars: " + stars);
-        new Thread() {
+        // Not owned by this activity, so the solution is saved even if the activity is destroyed
+        AssetScheduler.getInstance().submit(null, AssetScheduler.LANE_VISIBLE, new Runnable() {
             @Override
             public void run() {
                 try {
-                    String hash = PerspectiveUtils.getHash(perspective.puzzle.toByteArray());
-                    PerspectiveAndroidUtils.saveSolution(GameActivity.this, worldName, hash, solution);
-                } catch (IOException | NoSuchAlgorithmException e) {
+                    String[] hashes = PuzzleHashCache.getInstance(GameActivity.this).getHashes(getAssets(), worldName);
+                    if (!PerspectiveAndroidUtils.saveSolution(GameActivity.this, WorldSummary.of(world, hashes), puzzleIndex, solution)) {
+                        Log.d(PerspectiveUtils.TAG, "Better solution already saved");
+                    }
+                } catch (IOException e) {
                     CommonAndroidUtils.showErrorDialog(GameActivity.this, R.style.ErrorDialogTheme, R.string.error_save_solution, e);
                     e.printStackTrace();
                 }
             }
-        }.start();
+        });
 
         if (PerspectiveUtils.isTutorial(worldName)) {
             CommonAndroidUtils.setPreference(GameActivity.this, getString(R.string.preference_tutorial_completed), "true");
@@ -1031,6 +1088,10 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
 
     public void onGameMenu() {
         sound(BUTTON_SOUND);
+        if (Trace.DEBUG) {
+            // Pausing is a natural point to inspect what just happened
+            Trace.dump();
+        }
         runOnUiThread(new Runnable() {
             @Override
             public void run() {
@@ -1056,6 +1117,14 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
                         startActivity(intent);
                     }
                 });
+                Button buttonHint = layout.findViewById(R.id.game_menu_hint);
+                buttonHint.setOnClickListener(new View.OnClickListener() {
+                    @Override
+                    public void onClick(View view) {
+                        gameMenuDialog.dismiss();
+                        onHint();
+                    }
+                });
                 Button buttonReset = layout.findViewById(R.id.game_menu_reset);
                 buttonReset.setOnClickListener(new View.OnClickListener() {
                     @Override
@@ -1073,6 +1142,78 @@ public class GameActivity extends AppCompatActivity implements Perspective.Callb
         });
     }
 
+    @UiThread
+    private void onHint() {
+        final ElementIndex i = index;
+        if (i == null || perspective == null || perspective.puzzle == null) {
+            return;
+        }
+        int orientation;
+        synchronized (glScene) {
+            if (glScene.hasAnimation()) {
+                return;
+            }
+            orientation = Orientation.snap(perspective.mainRotation, snapScratch);
+            i.updateSphereCells();
+        }
+        AlertDialog.Builder builder = new AlertDialog.Builder(GameActivity.this, R.style.GameDialogTheme);
+        View layout = getLayoutInflater().inflate(R.layout.dialog_game_hint, null);
+        builder.setView(layout);
+        gameHintDialog = builder.create();
+        final TextView action = layout.findViewById(R.id.game_hint_action);
+        final TextView detail = layout.findViewById(R.id.game_hint_detail);
+        Button back = layout.findViewById(R.id.game_hint_back);
+        back.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                gameHintDialog.dismiss();
+            }
+        });
+        if (!isFinishing()) {
+            gameHintDialog.show();
+        }
+        int[] up = Orientation.toAxis(perspective.up, new int[3]);
+        hints.hint(perspective.puzzle, i, up, orientation, i.sphereCells, new HintEngine.Callback() {
+            @Override
+            public void onHint(final HintEngine.Hint hint) {
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        switch (hint.status) {
+                            case HintEngine.Hint.STATUS_SOLVED:
+                                action.setText(getHintAction(hint.action));
+                                detail.setText(getString(R.string.game_hint_remaining_format, hint.remaining));
+                                break;
+                            case HintEngine.Hint.STATUS_UNREACHABLE:
+                                action.setText(R.string.game_hint);
+                                detail.setText(R.string.game_hint_unreachable);
+                                break;
+                            default:
+                                action.setText(R.string.game_hint);
+                                detail.setText(R.string.game_hint_timeout);
+                                break;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private int getHintAction(int action) {
+        switch (action) {
+            case Orientation.TURN_X_POSITIVE:
+                return R.string.game_hint_turn_down;
+            case Orientation.TURN_X_NEGATIVE:
+                return R.string.game_hint_turn_up;
+            case Orientation.TURN_Y_POSITIVE:
+                return R.string.game_hint_turn_right;
+            case Orientation.TURN_Y_NEGATIVE:
+                return R.string.game_hint_turn_left;
+            default:
+                return R.string.game_hint_launch;
+        }
+    }
+
     @NonNull
     private String getNextWorld() {
         switch (worldName) {
@@ -32,6 +32,8 @@ import com.aletheiaware.joy.android.scene.GLScene;
 import com.aletheiaware.joy.scene.RotationGesture;
 import com.aletheiaware.perspective.Perspective;
 import com.aletheiaware.perspective.utils.PerspectiveUtils;
+import com.aletheiaware.perspectivepotv.android.scene.FrameClock;
+import com.aletheiaware.perspectivepotv.android.utils.MeshRepository;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -41,7 +43,9 @@ public class GameView extends GLSurfaceView implements OnTouchListener, GLSurfac
     private final HandlerThread handlerThread;
     private final Handler handler;
     private GLScene scene;
+    private FrameClock clock;
     private Perspective perspective;
+    private MeshRepository meshes;
     private RotationGesture gesture;
 
     public GameView(Context context, AttributeSet attrs) {
@@ -61,12 +65,23 @@ public class GameView extends GLSurfaceView implements OnTouchListener, GLSurfac
         this.scene = scene;
     }
 
+    public void setMeshes(MeshRepository meshes) {
+        this.meshes = meshes;
+    }
+
+    public void setClock(FrameClock clock) {
+        this.clock = clock;
+    }
+
     public void setPerspective(Perspective perspective) {
         this.perspective = perspective;
     }
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+        if (meshes != null) {
+            meshes.onSurfaceCreated();
+        }
         if (scene != null) {
             scene.onSurfaceCreated(gl, config);
         }
@@ -89,6 +104,9 @@ public class GameView extends GLSurfaceView implements OnTouchListener, GLSurfac
 
     @Override
     public void onDrawFrame(GL10 gl) {
+        if (clock != null) {
+            clock.onFrame();
+        }
         if (scene != null) {
             scene.onDrawFrame(gl);
         }
@@ -26,6 +26,7 @@ import android.widget.Button;
 import com.aletheiaware.common.android.utils.CommonAndroidUtils;
 import com.aletheiaware.perspectivepotv.android.BuildConfig;
 import com.aletheiaware.perspectivepotv.android.R;
+import com.aletheiaware.perspectivepotv.android.utils.AssetScheduler;
 import com.aletheiaware.perspectivepotv.android.utils.PerspectiveAndroidUtils;
 
 import java.io.IOException;
@@ -155,7 +156,7 @@ public class SettingsActivity extends AppCompatActivity {
                     // TODO should this clear the vibration_enabled_preference?
                     // TODO should this clear the legalese_accepted_preference?
                     CommonAndroidUtils.setPreference(activity, getString(R.string.preference_tutorial_completed), "false");
-                    new Thread() {
+                    AssetScheduler.getInstance().submit(null, AssetScheduler.LANE_VISIBLE, new Runnable() {
                         @Override
                         public void run() {
                             try {
@@ -165,7 +166,7 @@ public class SettingsActivity extends AppCompatActivity {
                                 e.printStackTrace();
                             }
                         }
-                    }.start();
+                    });
                 }
             });
             clearProgressDialog.show();
@@ -24,16 +24,18 @@ import android.widget.TextView;
 
 import com.aletheiaware.common.android.utils.CommonAndroidUtils;
 import com.aletheiaware.common.utils.CommonUtils;
-import com.aletheiaware.perspective.PerspectiveProto.World;
-import com.aletheiaware.perspective.PerspectiveProto.Solution;
-import com.aletheiaware.perspective.PerspectiveProto.Puzzle;
 import com.aletheiaware.perspective.utils.PerspectiveUtils;
 import com.aletheiaware.perspectivepotv.android.BuildConfig;
 import com.aletheiaware.perspectivepotv.android.PuzzleAdapter;
 import com.aletheiaware.perspectivepotv.android.R;
 import com.aletheiaware.perspectivepotv.android.WorldAdapter;
 import com.aletheiaware.perspectivepotv.android.billing.BillingManager;
+import com.aletheiaware.perspectivepotv.android.utils.AssetScheduler;
+import com.aletheiaware.perspectivepotv.android.utils.OrderedBatcher;
 import com.aletheiaware.perspectivepotv.android.utils.PerspectiveAndroidUtils;
+import com.aletheiaware.perspectivepotv.android.utils.PuzzleHashCache;
+import com.aletheiaware.perspectivepotv.android.utils.WorldProgress;
+import com.aletheiaware.perspectivepotv.android.utils.WorldSummary;
 import com.android.billingclient.api.BillingClient.BillingResponseCode;
 import com.android.billingclient.api.BillingClient.SkuType;
 import com.android.billingclient.api.BillingResult;
@@ -41,11 +43,15 @@ import com.android.billingclient.api.SkuDetails;
 import com.android.billingclient.api.SkuDetailsResponseListener;
 
 import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.WorkerThread;
@@ -58,12 +64,17 @@ import androidx.recyclerview.widget.RecyclerView;
 
 public class WorldSelectActivity extends AppCompatActivity implements WorldAdapter.Callback, BillingManager.Callback {
 
-    private final Map<String, int[]> puzzleStars = new HashMap<>();
+    // Loaded worlds are added to the list in batches of at most this size
+    private static final int BATCH_SIZE = 4;
+
+    private final Map<String, WorldProgress> progress = new ConcurrentHashMap<>();
     private final Map<String, SkuDetails> skuDetails = new HashMap<>();
     public AlertDialog puzzleListDialog;
     public RecyclerView recyclerView;
     public WorldAdapter adapter;
     private BillingManager manager;
+    private Map<String, WorldSummary> index;
+    private final Map<String, WorldSummary> summaries = new ConcurrentHashMap<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -82,19 +93,11 @@ public class WorldSelectActivity extends AppCompatActivity implements WorldAdapt
 
         manager = new BillingManager(this, this);
 
-        new Thread() {
-            @Override
-            public void run() {
-                for (String world : PerspectiveUtils.FREE_WORLDS) {
-                    addWorld(world);
-                }
-                if (BuildConfig.DEBUG) {
-                    for (String world : PerspectiveUtils.PAID_WORLDS) {
-                        addWorld(world);
-                    }
-                }
-            }
-        }.start();
+        List<String> worlds = new ArrayList<>(Arrays.asList(PerspectiveUtils.FREE_WORLDS));
+        if (BuildConfig.DEBUG) {
+            worlds.addAll(Arrays.asList(PerspectiveUtils.PAID_WORLDS));
+        }
+        addWorlds(worlds);
     }
 
     @Override
@@ -103,45 +106,92 @@ public class WorldSelectActivity extends AppCompatActivity implements WorldAdapt
         if (manager != null) {
             manager.destroy();
         }
+        AssetScheduler.getInstance().cancel(this);
+    }
+
+    private synchronized Map<String, WorldSummary> getIndex() {
+        if (index == null) {
+            try (InputStream in = getAssets().open(WorldSummary.INDEX_ASSET)) {
+                index = WorldSummary.readIndex(in);
+            } catch (IOException e) {
+                Log.d(PerspectiveUtils.TAG, "World index unavailable: " + e.getMessage());
+                index = new HashMap<>();
+            }
+        }
+        return index;
     }
 
     @WorkerThread
-    private void addWorld(final String world) {
-        try {
-            final World w = PerspectiveAndroidUtils.getWorld(getAssets(), world);
-            final int puzzles = w.getPuzzleCount();
-            final int[] stars = new int[puzzles];
-            int totalStars = 0;
-            boolean completed = puzzles > 0;
-            for (int i = 0; i < puzzles; i++) {
-                stars[i] = -1;
-                Solution s = null;
-                Puzzle p = w.getPuzzle(i);
-                if (p != null) {
+    private WorldSummary getSummary(String world) throws IOException {
+        WorldSummary summary = getIndex().get(world);
+        if (summary == null) {
+            summary = summaries.get(world);
+        }
+        if (summary == null) {
+            // Not in the index, parse the world instead
+            String[] hashes = PuzzleHashCache.getInstance(this).getHashes(getAssets(), world);
+            summary = WorldSummary.of(PerspectiveAndroidUtils.getWorld(getAssets(), world), hashes);
+            summaries.put(world, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Loads the given worlds concurrently, and adds them to the list in order, a batch at a time.
+     */
+    private void addWorlds(List<String> worlds) {
+        final OrderedBatcher<WorldSummary> batcher = new OrderedBatcher<>(worlds.size(), BATCH_SIZE, new OrderedBatcher.Callback<WorldSummary>() {
+            @Override
+            public void publish(List<WorldSummary> batch) {
+                WorldSelectActivity.this.publish(batch);
+            }
+        });
+        for (int i = 0; i < worlds.size(); i++) {
+            final int position = i;
+            final String world = worlds.get(i);
+            final AssetScheduler.Task<WorldSummary> task = AssetScheduler.getInstance().submit(this, AssetScheduler.LANE_VISIBLE, new Callable<WorldSummary>() {
+                @Override
+                public WorldSummary call() throws Exception {
+                    WorldSummary summary = getSummary(world);
+                    progress.put(world, PerspectiveAndroidUtils.loadProgress(WorldSelectActivity.this, summary));
+                    return summary;
+                }
+            });
+            task.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (task.isCancelled()) {
+                        return;// Activity destroyed
+                    }
+                    WorldSummary summary = null;
                     try {
-                        String hash = PerspectiveUtils.getHash(p.toByteArray());
-                        s = PerspectiveAndroidUtils.loadSolution(WorldSelectActivity.this, world, hash);
-                    } catch (IOException | NoSuchAlgorithmException e) {
+                        summary = task.get();
+                    } catch (InterruptedException | ExecutionException e) {
+                        CommonAndroidUtils.showErrorDialog(WorldSelectActivity.this, R.style.ErrorDialogTheme, R.string.error_add_world, e);
                         e.printStackTrace();
                     }
+                    // Show the worlds loaded so far, up to the first which isn't
+                    batcher.complete(position, summary);
                 }
-                if (s == null) {
-                    completed = false;
-                } else {
-                    stars[i] = PerspectiveUtils.scoreToStars(s.getScore(), p.getTarget());
-                    totalStars += stars[i];
-                }
-            }
-            puzzleStars.put(world, stars);
-            adapter.addWorld(w, completed, totalStars);
-        } catch (IOException e) {
-            CommonAndroidUtils.showErrorDialog(this, R.style.ErrorDialogTheme, R.string.error_add_world, e);
-            e.printStackTrace();
+            });
         }
     }
 
+    private void publish(List<WorldSummary> batch) {
+        List<WorldProgress> p = new ArrayList<>();
+        for (WorldSummary w : batch) {
+            p.add(progress.get(w.getName()));
+        }
+        adapter.addWorlds(batch, p);
+    }
+
+    private int[] getStars(String world) {
+        WorldProgress p = progress.get(world);
+        return p == null ? null : p.getStars();
+    }
+
     @Override
-    public void onSelect(World world) {
+    public void onSelect(WorldSummary world) {
         if (world != null) {
             String name = world.getName();
             View layout = getLayoutInflater().inflate(R.layout.dialog_puzzle_select, null);
@@ -152,7 +202,7 @@ public class WorldSelectActivity extends AppCompatActivity implements WorldAdapt
             puzzleListDialog = new AlertDialog.Builder(WorldSelectActivity.this, R.style.WorldSelectDialogTheme)
                     .setView(layout)
                     .create();
-            PuzzleAdapter puzzleAdapter = new PuzzleAdapter(this, world, puzzleStars.get(name), new PuzzleAdapter.Callback() {
+            PuzzleAdapter puzzleAdapter = new PuzzleAdapter(this, world, getStars(name), new PuzzleAdapter.Callback() {
                 @Override
                 public void onSelect(String world, int puzzle) {
                     puzzleListDialog.cancel();
@@ -180,27 +230,24 @@ public class WorldSelectActivity extends AppCompatActivity implements WorldAdapt
     @Override
     public void onBillingClientSetup() {
         Log.d(PerspectiveUtils.TAG, "Billing Client Setup");
-        new Thread() {
+        AssetScheduler.getInstance().submit(this, AssetScheduler.LANE_PREFETCH, new Runnable() {
             @Override
             public void run() {
                 querySkuDetails(Arrays.asList(PerspectiveUtils.PAID_WORLDS));
             }
-        }.start();
+        });
     }
 
     @Override
     public void onPurchasesUpdated() {
         Log.d(PerspectiveUtils.TAG, "Purchases Updated");
-        new Thread() {
-            @Override
-            public void run() {
-                for (String world : PerspectiveUtils.PAID_WORLDS) {
-                    if (manager.hasPurchased(world)) {
-                        addWorld(world);
-                    }
-                }
+        List<String> worlds = new ArrayList<>();
+        for (String world : PerspectiveUtils.PAID_WORLDS) {
+            if (manager.hasPurchased(world)) {
+                worlds.add(world);
             }
-        }.start();
+        }
+        addWorlds(worlds);
     }
 
     public void querySkuDetails(List<String> skus) {
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import android.content.res.AssetManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.WorkerThread;
+
+/**
+ * The mesh, texture, sound, music and world assets of the app, read once from a manifest generated at build time.
+ *
+ * Listing asset directories is slow when assets are read from the APK, so loaders find assets here instead.
+ */
+public class AssetManifest {
+
+    public static final String MANIFEST_ASSET = "manifest.tsv";
+
+    public static final String TYPE_MESH = "mesh";
+    public static final String TYPE_TEXTURE = "texture";
+    public static final String TYPE_SOUND = "sound";
+    public static final String TYPE_MUSIC = "music";
+    public static final String TYPE_WORLD = "world";
+
+    private static final String[] TYPES = {TYPE_MESH, TYPE_TEXTURE, TYPE_SOUND, TYPE_MUSIC, TYPE_WORLD};
+
+    private static AssetManifest instance;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, List<Entry>> types = new HashMap<>();
+
+    AssetManifest(List<Entry> es) {
+        for (String t : TYPES) {
+            types.put(t, new ArrayList<Entry>());
+        }
+        for (Entry e : es) {
+            entries.put(e.path, e);
+            List<Entry> l = types.get(e.type);
+            if (l != null) {
+                l.add(e);
+            }
+        }
+    }
+
+    @WorkerThread
+    public static synchronized AssetManifest getInstance(AssetManager assets) {
+        if (instance == null) {
+            List<Entry> entries;
+            try (InputStream in = assets.open(MANIFEST_ASSET)) {
+                entries = read(in);
+            } catch (IOException e) {
+                // Built without a manifest, list the directories instead
+                System.err.println("Asset manifest unavailable: " + e.getMessage());
+                entries = list(assets);
+            }
+            instance = new AssetManifest(entries);
+        }
+        return instance;
+    }
+
+    /**
+     * Reads a manifest of lines of tab separated type, path and size.
+     */
+    static List<Entry> read(InputStream in) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] parts = line.split("\t");
+            if (parts.length != 3) {
+                throw new IOException("Malformed asset manifest line: " + line);
+            }
+            try {
+                entries.add(new Entry(parts[0], parts[1], Long.parseLong(parts[2])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed asset manifest line: " + line, e);
+            }
+        }
+        return entries;
+    }
+
+    private static List<Entry> list(AssetManager assets) {
+        List<Entry> entries = new ArrayList<>();
+        for (String type : TYPES) {
+            try {
+                String[] files = assets.list(type);
+                if (files != null) {
+                    for (String f : files) {
+                        entries.add(new Entry(type, type + "/" + f, -1));
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the assets of the given type, in name order.
+     */
+    public List<Entry> getEntries(String type) {
+        List<Entry> l = types.get(type);
+        if (l == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(l);
+    }
+
+    /**
+     * Returns the asset with the given path, or null if there isn't one.
+     */
+    public Entry getEntry(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Returns the asset of the given type with the given name, or null if there isn't one.
+     */
+    public Entry getEntry(String type, String name) {
+        for (Entry e : getEntries(type)) {
+            if (e.name.equals(name)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public static class Entry {
+        public final String type;
+        public final String path;
+        public final String name;
+        // Size in bytes, or -1 if unknown
+        public final long size;
+
+        Entry(String type, String path, long size) {
+            this.type = type;
+            this.path = path;
+            this.name = path.substring(path.lastIndexOf('/') + 1);
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An app-wide scheduler of loading work, run on a small fixed pool of worker threads.
+ *
+ * Tasks are run in order of lane, and in the order submitted within a lane, so the assets of the visible puzzle are
+ * loaded before sounds, and sounds before anything prefetched. Each task belongs to an owner, such as an activity,
+ * and cancelling the owner when it is destroyed drops its pending tasks and interrupts its running ones. Tasks
+ * without an owner, such as saving progress, always run to completion.
+ */
+public class AssetScheduler {
+
+    // Work needed to show the current screen
+    public static final int LANE_VISIBLE = 0;
+    public static final int LANE_SOUND = 1;
+    // Work which may be needed later
+    public static final int LANE_PREFETCH = 2;
+
+    private static final int THREADS = 2;
+
+    private static AssetScheduler instance;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Object, Set<Task<?>>> owners = new HashMap<>();
+
+    AssetScheduler(int threads) {
+        final ThreadFactory factory = Executors.defaultThreadFactory();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = factory.newThread(runnable);
+                thread.setName("AssetScheduler-" + thread.getName());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public static synchronized AssetScheduler getInstance() {
+        if (instance == null) {
+            instance = new AssetScheduler(THREADS);
+        }
+        return instance;
+    }
+
+    public <T> Task<T> submit(Object owner, int lane, Callable<T> callable) {
+        Task<T> task = new Task<>(this, owner, lane, sequence.getAndIncrement(), callable);
+        register(task);
+        executor.execute(task);
+        return task;
+    }
+
+    public Task<Void> submit(Object owner, int lane, final Runnable runnable) {
+        return submit(owner, lane, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                runnable.run();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Submits a task once the given task completes, or cancels it if the given task fails or is cancelled.
+     */
+    public <T> Task<T> submitAfter(Task<?> dependency, final Object owner, final int lane, final Callable<T> callable) {
+        final Task<T> task = new Task<>(this, owner, lane, 0, callable);
+        register(task);
+        final Task<?> d = dependency;
+        d.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (d.isCancelled() || task.isCancelled()) {
+                    task.cancel(false);
+                    return;
+                }
+                try {
+                    d.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    task.cancel(false);
+                    return;
+                }
+                // Forward the result of the task, which is queued now its dependency is done
+                final Task<T> queued = submit(owner, lane, callable);
+                queued.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        task.complete(queued);
+                    }
+                });
+                task.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (task.isCancelled()) {
+                            queued.cancel(true);
+                        }
+                    }
+                });
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Returns a task which completes when all the given tasks have, failing if any of them failed or was cancelled.
+     */
+    public Task<Void> whenAll(Object owner, Collection<? extends Task<?>> tasks) {
+        final Task<Void> all = new Task<>(this, owner, LANE_VISIBLE, 0, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                return null;
+            }
+        });
+        register(all);
+        final List<Task<?>> ts = new ArrayList<>(tasks);
+        final AtomicInteger remaining = new AtomicInteger(ts.size());
+        if (ts.isEmpty()) {
+            all.run();
+            return all;
+        }
+        for (final Task<?> t : ts) {
+            t.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (remaining.decrementAndGet() > 0) {
+                        return;
+                    }
+                    // The last to complete reports the first failure, if any
+                    for (Task<?> u : ts) {
+                        try {
+                            u.get();
+                        } catch (InterruptedException | CancellationException e) {
+                            all.cancel(false);
+                            return;
+                        } catch (ExecutionException e) {
+                            all.fail(e.getCause());
+                            return;
+                        }
+                    }
+                    all.run();
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * Cancels every task of the given owner, interrupting those already running.
+     */
+    public void cancel(Object owner) {
+        List<Task<?>> tasks;
+        synchronized (owners) {
+            Set<Task<?>> s = owners.remove(owner);
+            if (s == null) {
+                return;
+            }
+            tasks = new ArrayList<>(s);
+        }
+        for (Task<?> t : tasks) {
+            t.cancel(true);
+            executor.remove(t);
+        }
+    }
+
+    private void register(Task<?> task) {
+        if (task.owner == null) {
+            return;
+        }
+        synchronized (owners) {
+            Set<Task<?>> tasks = owners.get(task.owner);
+            if (tasks == null) {
+                tasks = new HashSet<>();
+                owners.put(task.owner, tasks);
+            }
+            tasks.add(task);
+        }
+    }
+
+    private void onDone(Task<?> task) {
+        if (task.owner == null) {
+            return;
+        }
+        synchronized (owners) {
+            Set<Task<?>> tasks = owners.get(task.owner);
+            if (tasks != null && tasks.remove(task) && tasks.isEmpty()) {
+                owners.remove(task.owner);
+            }
+        }
+    }
+
+    /**
+     * A task of the scheduler, which can be waited on, cancelled, or listened to for completion.
+     */
+    public static class Task<T> extends FutureTask<T> implements Comparable<Task<?>> {
+        private final AssetScheduler scheduler;
+        private final Object owner;
+        private final int lane;
+        private final long sequence;
+        private final List<Runnable> listeners = new ArrayList<>();
+        private boolean finished;
+
+        Task(AssetScheduler scheduler, Object owner, int lane, long sequence, Callable<T> callable) {
+            super(callable);
+            this.scheduler = scheduler;
+            this.owner = owner;
+            this.lane = lane;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Runs the given listener on the thread completing this task, or immediately if it has already completed.
+         */
+        public void addListener(Runnable listener) {
+            synchronized (listeners) {
+                if (!finished) {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            listener.run();
+        }
+
+        void fail(Throwable cause) {
+            setException(cause);
+        }
+
+        // Completes this task with the outcome of the given task
+        void complete(Task<T> other) {
+            try {
+                set(other.get());
+            } catch (InterruptedException e) {
+                setException(e);
+            } catch (ExecutionException e) {
+                setException(e.getCause());
+            } catch (CancellationException e) {
+                cancel(false);
+            }
+        }
+
+        @Override
+        protected void done() {
+            scheduler.onDone(this);
+            List<Runnable> ls;
+            synchronized (listeners) {
+                finished = true;
+                ls = new ArrayList<>(listeners);
+                listeners.clear();
+            }
+            for (Runnable l : ls) {
+                try {
+                    l.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            if (lane != other.lane) {
+                return lane < other.lane ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
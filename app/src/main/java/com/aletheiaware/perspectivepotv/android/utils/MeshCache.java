@@ -0,0 +1,247 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetManager;
+
+import com.aletheiaware.joy.JoyProto.Mesh;
+import com.aletheiaware.joy.scene.MeshLoader;
+import com.aletheiaware.perspectivepotv.android.scene.InterleavedMesh;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.WorkerThread;
+
+/**
+ * A cache of meshes converted from their assets into the layout of an {@link InterleavedMesh}.
+ *
+ * A mesh is converted the first time it is loaded, and written to the cache directory. Later loads map the file into
+ * memory, without parsing the asset. Each file records the install time of the app and the size of the asset it was
+ * converted from, so an asset updated by a new version of the app is converted again.
+ *
+ * Vertices are welded and their triangles reordered by the {@link MeshOptimizer} before they are cached.
+ *
+ * File format: magic, version, install time, asset size, vertex count, index count, then the interleaved vertices and
+ * the unsigned short indices, all in native byte order. A mesh with too many vertices to index has no indices.
+ */
+public class MeshCache {
+
+    private static final String DIRECTORY_NAME = "mesh";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x504D5348;// PMSH
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+
+    private static MeshCache instance;
+
+    private final File directory;
+    private final long installed;
+
+    public MeshCache(File directory, long installed) {
+        this.directory = directory;
+        this.installed = installed;
+    }
+
+    public static synchronized MeshCache getInstance(Context context) {
+        if (instance == null) {
+            long installed = 0;
+            try {
+                installed = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException e) {
+                e.printStackTrace();
+            }
+            instance = new MeshCache(new File(context.getCacheDir(), DIRECTORY_NAME), installed);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the named mesh, converting it from its asset if it isn't already cached.
+     */
+    @WorkerThread
+    public InterleavedMesh get(AssetManager assets, String name) throws IOException {
+        AssetManifest.Entry entry = AssetManifest.getInstance(assets).getEntry(AssetManifest.TYPE_MESH + "/" + name);
+        long size = entry == null ? -1 : entry.size;
+        File file = new File(directory, name + SUFFIX);
+        InterleavedMesh mesh = map(file, size);
+        if (mesh == null) {
+            write(file, size, convert(load(assets, name)));
+            mesh = map(file, size);
+            if (mesh == null) {
+                throw new IOException("Could not cache mesh " + name);
+            }
+        }
+        return mesh;
+    }
+
+    // Maps the cached mesh, or returns null if it is missing or stale
+    InterleavedMesh map(File file, long size) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.nativeOrder());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != installed || buffer.getLong() != size) {
+                return null;
+            }
+            int vertexCount = buffer.getInt();
+            int indexCount = buffer.getInt();
+            long vertexSize = (long) vertexCount * InterleavedMesh.STRIDE;
+            if (vertexCount < 0 || indexCount < 0 || buffer.remaining() != vertexSize + indexCount * 2L) {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            buffer.limit(buffer.position() + (int) vertexSize);
+            ByteBuffer vertices = buffer.slice();
+            vertices.order(ByteOrder.nativeOrder());
+            if (indexCount == 0) {
+                return new InterleavedMesh(vertices, vertexCount);
+            }
+            buffer.position(buffer.limit());
+            buffer.limit(buffer.capacity());
+            ByteBuffer indices = buffer.slice();
+            indices.order(ByteOrder.nativeOrder());
+            return new InterleavedMesh(vertices, vertexCount, indices, indexCount);
+        }
+    }
+
+    void write(File file, long size, ByteBuffer[] mesh) throws IOException {
+        ByteBuffer vertices = mesh[0];
+        ByteBuffer indices = mesh[1];
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.order(ByteOrder.nativeOrder());
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(installed);
+        header.putLong(size);
+        header.putInt(vertices.remaining() / InterleavedMesh.STRIDE);
+        header.putInt(indices == null ? 0 : indices.remaining() / 2);
+        header.flip();
+        // Write a temporary file and rename it, so a reader never sees a partial mesh
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                FileChannel channel = out.getChannel();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (vertices.hasRemaining()) {
+                    channel.write(vertices);
+                }
+                while (indices != null && indices.hasRemaining()) {
+                    channel.write(indices);
+                }
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp + " to " + file);
+            }
+        } finally {
+            if (temp.exists() && !temp.delete()) {
+                System.err.println("Could not delete " + temp);
+            }
+        }
+    }
+
+    private static Mesh load(AssetManager assets, String name) throws IOException {
+        final List<Mesh> loaded = new ArrayList<>(1);
+        // Run the loader on the calling thread rather than starting a thread of its own
+        try (InputStream in = assets.open(AssetManifest.TYPE_MESH + "/" + name)) {
+            new MeshLoader(in) {
+                @Override
+                public void onMesh(Mesh m) throws IOException {
+                    loaded.add(m);
+                }
+            }.run();
+        }
+        if (loaded.isEmpty()) {
+            throw new IOException("No mesh in " + name);
+        }
+        return loaded.get(loaded.size() - 1);
+    }
+
+    /**
+     * Converts the given mesh into interleaved vertices and, if they can be indexed, indices.
+     */
+    static ByteBuffer[] convert(Mesh mesh) throws IOException {
+        ByteBuffer triangles = interleave(mesh);
+        int count = triangles.remaining() / InterleavedMesh.STRIDE;
+        int[] indices = new int[count];
+        int[] first = MeshOptimizer.weld(triangles, count, indices);
+        if (count % 3 != 0 || first.length > MeshOptimizer.MAX_VERTICES) {
+            return new ByteBuffer[] {triangles, null};
+        }
+        MeshOptimizer.optimize(indices, first.length);
+        int[] order = MeshOptimizer.compact(indices, first.length);
+        ByteBuffer vertices = ByteBuffer.allocateDirect(order.length * InterleavedMesh.STRIDE);
+        vertices.order(ByteOrder.nativeOrder());
+        for (int v : order) {
+            ByteBuffer b = triangles.duplicate();
+            b.position(first[v] * InterleavedMesh.STRIDE);
+            b.limit(b.position() + InterleavedMesh.STRIDE);
+            vertices.put(b);
+        }
+        vertices.flip();
+        ByteBuffer shorts = ByteBuffer.allocateDirect(indices.length * 2);
+        shorts.order(ByteOrder.nativeOrder());
+        for (int i : indices) {
+            shorts.putShort((short) i);
+        }
+        shorts.flip();
+        return new ByteBuffer[] {vertices, shorts};
+    }
+
+    /**
+     * Interleaves the vertices, normals and texture coordinates of the given mesh.
+     */
+    static ByteBuffer interleave(Mesh mesh) throws IOException {
+        int count = mesh.getVertexCount() / InterleavedMesh.POSITION_SIZE;
+        if (mesh.getNormalCount() != count * InterleavedMesh.NORMAL_SIZE || mesh.getTexCoordCount() != count * InterleavedMesh.TEX_COORD_SIZE) {
+            throw new IOException("Mismatched mesh attributes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(count * InterleavedMesh.STRIDE);
+        buffer.order(ByteOrder.nativeOrder());
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < InterleavedMesh.POSITION_SIZE; j++) {
+                buffer.putFloat(mesh.getVertex(i * InterleavedMesh.POSITION_SIZE + j));
+            }
+            for (int j = 0; j < InterleavedMesh.NORMAL_SIZE; j++) {
+                buffer.putFloat(mesh.getNormal(i * InterleavedMesh.NORMAL_SIZE + j));
+            }
+            for (int j = 0; j < InterleavedMesh.TEX_COORD_SIZE; j++) {
+                buffer.putFloat(mesh.getTexCoord(i * InterleavedMesh.TEX_COORD_SIZE + j));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspectivepotv.android.scene.InterleavedMesh;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Turns a list of triangles into an indexed mesh.
+ *
+ * Vertices with identical position, normal and texture coordinate are welded into one. Triangles are then reordered so
+ * vertices are reused while still in the GPU's post-transform cache, following Tom Forsyth's "Linear-Speed Vertex Cache
+ * Optimisation", and vertices are stored in the order they are first used.
+ */
+public class MeshOptimizer {
+
+    // Largest vertex count addressable by unsigned short indices, which OpenGL ES 2.0 always supports
+    public static final int MAX_VERTICES = 0x10000;
+
+    private static final int CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    private static final int MAX_VALENCE_SCORE = 64;
+
+    private static final float[] CACHE_SCORES = new float[CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[MAX_VALENCE_SCORE];
+
+    static {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            if (i < 3) {
+                // The vertices of the last triangle are scored lower, so it isn't repeatedly chosen
+                CACHE_SCORES[i] = LAST_TRIANGLE_SCORE;
+            } else {
+                CACHE_SCORES[i] = (float) Math.pow(1.0f - (i - 3) / (float) (CACHE_SIZE - 3), CACHE_DECAY_POWER);
+            }
+        }
+        for (int i = 1; i < MAX_VALENCE_SCORE; i++) {
+            VALENCE_SCORES[i] = getValenceScore(i);
+        }
+    }
+
+    private MeshOptimizer() {}
+
+    /**
+     * Welds identical vertices.
+     *
+     * @param vertices the interleaved vertices, in native byte order.
+     * @param count the number of vertices.
+     * @param indices receives, for each vertex, the index of the welded vertex it became.
+     * @return for each welded vertex, the index of the first vertex welded into it.
+     */
+    public static int[] weld(ByteBuffer vertices, int count, int[] indices) {
+        int words = InterleavedMesh.FLOATS_PER_VERTEX;
+        int[] bits = new int[count * words];
+        ByteBuffer b = vertices.duplicate();
+        b.order(ByteOrder.nativeOrder());
+        b.asIntBuffer().get(bits);
+        // Open addressing table of welded vertices, sized to at most half full
+        int capacity = Integer.highestOneBit(Math.max(count, 1)) << 2;
+        int mask = capacity - 1;
+        int[] table = new int[capacity];
+        Arrays.fill(table, -1);
+        int[] first = new int[count];
+        int unique = 0;
+        for (int v = 0; v < count; v++) {
+            int slot = hash(bits, v * words, words) & mask;
+            while (true) {
+                int u = table[slot];
+                if (u < 0) {
+                    table[slot] = unique;
+                    first[unique] = v;
+                    indices[v] = unique++;
+                    break;
+                }
+                if (equals(bits, first[u] * words, v * words, words)) {
+                    indices[v] = u;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return Arrays.copyOf(first, unique);
+    }
+
+    /**
+     * Reorders the triangles of the given indices, in place, for the post-transform vertex cache.
+     */
+    public static void optimize(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+        // Triangles of each vertex, grouped by vertex
+        int[] offsets = new int[vertexCount + 1];
+        for (int i : indices) {
+            offsets[i + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] remaining = new int[vertexCount];
+        int[] triangles = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            triangles[offsets[v] + remaining[v]++] = i / 3;
+        }
+
+        int[] cachePositions = new int[vertexCount];
+        Arrays.fill(cachePositions, -1);
+        float[] vertexScores = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexScores[v] = getVertexScore(-1, remaining[v]);
+        }
+        float[] triangleScores = new float[triangleCount];
+        int best = -1;
+        float bestScore = -1;
+        for (int t = 0; t < triangleCount; t++) {
+            triangleScores[t] = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]] + vertexScores[indices[t * 3 + 2]];
+            if (triangleScores[t] > bestScore) {
+                best = t;
+                bestScore = triangleScores[t];
+            }
+        }
+
+        boolean[] emitted = new boolean[triangleCount];
+        int[] output = new int[indices.length];
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] next = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int cursor = 0;
+        for (int o = 0; o < triangleCount; o++) {
+            if (best < 0) {
+                // Nothing in the cache has triangles left, start from the next triangle not yet emitted
+                while (emitted[cursor]) {
+                    cursor++;
+                }
+                best = cursor;
+            }
+            emitted[best] = true;
+            System.arraycopy(indices, best * 3, output, o * 3, 3);
+
+            // The triangle's vertices move to the front of the cache, and lose the triangle
+            int nextCount = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[best * 3 + k];
+                if (!contains(next, nextCount, v)) {
+                    next[nextCount++] = v;
+                }
+                int end = offsets[v] + remaining[v];
+                for (int i = offsets[v]; i < end; i++) {
+                    if (triangles[i] == best) {
+                        triangles[i] = triangles[end - 1];
+                        break;
+                    }
+                }
+                remaining[v]--;
+            }
+            int added = nextCount;
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                if (!contains(next, added, v)) {
+                    next[nextCount++] = v;
+                }
+            }
+            int[] swap = cache;
+            cache = next;
+            next = swap;
+            cacheCount = nextCount;
+
+            // Rescore the cached vertices, and any pushed out, and the triangles they're still part of
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                cachePositions[v] = i < CACHE_SIZE ? i : -1;
+                float score = getVertexScore(cachePositions[v], remaining[v]);
+                float delta = score - vertexScores[v];
+                vertexScores[v] = score;
+                for (int j = offsets[v], end = offsets[v] + remaining[v]; j < end; j++) {
+                    triangleScores[triangles[j]] += delta;
+                }
+            }
+            if (cacheCount > CACHE_SIZE) {
+                cacheCount = CACHE_SIZE;
+            }
+
+            best = -1;
+            bestScore = -1;
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                for (int j = offsets[v], end = offsets[v] + remaining[v]; j < end; j++) {
+                    int t = triangles[j];
+                    if (triangleScores[t] > bestScore) {
+                        best = t;
+                        bestScore = triangleScores[t];
+                    }
+                }
+            }
+        }
+        System.arraycopy(output, 0, indices, 0, indices.length);
+    }
+
+    /**
+     * Renumbers the given indices, in place, so vertices are numbered in the order they are first used.
+     *
+     * @return for each new vertex number, the old vertex number.
+     */
+    public static int[] compact(int[] indices, int vertexCount) {
+        int[] numbers = new int[vertexCount];
+        Arrays.fill(numbers, -1);
+        int[] order = new int[vertexCount];
+        int count = 0;
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            if (numbers[v] < 0) {
+                numbers[v] = count;
+                order[count++] = v;
+            }
+            indices[i] = numbers[v];
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    private static float getVertexScore(int cachePosition, int remaining) {
+        if (remaining <= 0) {
+            // No triangles left to use this vertex
+            return -1;
+        }
+        float score = 0;
+        if (cachePosition >= 0) {
+            score = CACHE_SCORES[cachePosition];
+        }
+        return score + (remaining < MAX_VALENCE_SCORE ? VALENCE_SCORES[remaining] : getValenceScore(remaining));
+    }
+
+    // Boosts vertices with few triangles left, so lone triangles aren't left behind
+    private static float getValenceScore(int remaining) {
+        return VALENCE_BOOST_SCALE * (float) Math.pow(remaining, -VALENCE_BOOST_POWER);
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int hash(int[] bits, int offset, int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + bits[offset + i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(int[] bits, int a, int b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bits[a + i] != bits[b + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import android.content.res.AssetManager;
+
+import com.aletheiaware.joy.android.scene.GLScene;
+import com.aletheiaware.perspectivepotv.android.scene.InterleavedMesh;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads the meshes of a scene, each once, on the {@link AssetScheduler}.
+ *
+ * Requests for a mesh share a single task, which completes when the mesh is ready to draw. Meshes are read through the
+ * {@link MeshCache}. A mesh which fails to load is tried again on the next request. Tasks are owned by the scene, so
+ * cancelling the scene cancels its meshes. The view drawing the scene tells the repository when its surface is created,
+ * and releases the meshes when the scene is discarded.
+ */
+public class MeshRepository {
+
+    public static final int STATE_NONE = 0;
+    public static final int STATE_PENDING = 1;
+    public static final int STATE_READY = 2;
+    public static final int STATE_FAILED = 3;
+
+    private final GLScene scene;
+    private final AssetManager assets;
+    private final MeshCache cache;
+    private final Map<String, AssetScheduler.Task<InterleavedMesh>> meshes = new HashMap<>();
+    // Read on the GL thread every frame, so kept apart from the tasks
+    private final Map<String, InterleavedMesh> ready = new ConcurrentHashMap<>();
+
+    public MeshRepository(GLScene scene, AssetManager assets, MeshCache cache) {
+        this.scene = scene;
+        this.assets = assets;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the task loading the named mesh, starting it if the mesh hasn't been requested or failed to load.
+     */
+    public synchronized AssetScheduler.Task<InterleavedMesh> load(final String name) {
+        AssetScheduler.Task<InterleavedMesh> task = meshes.get(name);
+        if (task != null && getState(task) != STATE_FAILED) {
+            return task;
+        }
+        task = AssetScheduler.getInstance().submit(scene, AssetScheduler.LANE_VISIBLE, new Callable<InterleavedMesh>() {
+            @Override
+            public InterleavedMesh call() throws Exception {
+                InterleavedMesh mesh = cache.get(assets, name);
+                ready.put(name, mesh);
+                if (Trace.DEBUG) {
+                    Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_MESH_LOADED, 0, 0, 0, 0, name);
+                }
+                return mesh;
+            }
+        });
+        meshes.put(name, task);
+        return task;
+    }
+
+    /**
+     * Returns the named mesh if it has loaded, or null.
+     */
+    public InterleavedMesh getMesh(String name) {
+        return ready.get(name);
+    }
+
+    /**
+     * Marks the loaded meshes for upload to the new GL context. Call on the GL thread when the surface is created.
+     */
+    public void onSurfaceCreated() {
+        for (InterleavedMesh m : ready.values()) {
+            m.invalidate();
+        }
+    }
+
+    /**
+     * Deletes the buffers of the loaded meshes. Call on the GL thread once the scene is no longer drawn.
+     */
+    public void release() {
+        for (InterleavedMesh m : ready.values()) {
+            m.release();
+        }
+    }
+
+    public synchronized int getState(String name) {
+        AssetScheduler.Task<InterleavedMesh> task = meshes.get(name);
+        if (task == null) {
+            return STATE_NONE;
+        }
+        return getState(task);
+    }
+
+    private static int getState(AssetScheduler.Task<?> task) {
+        if (!task.isDone()) {
+            return STATE_PENDING;
+        }
+        try {
+            task.get();
+            return STATE_READY;
+        } catch (InterruptedException | ExecutionException | CancellationException e) {
+            return STATE_FAILED;
+        }
+    }
+
+    /**
+     * Returns a task which completes when all the named meshes are loaded, or fails if any of them can't be.
+     */
+    public AssetScheduler.Task<Void> awaitAll(Collection<String> names) {
+        List<AssetScheduler.Task<InterleavedMesh>> tasks = new ArrayList<>();
+        for (String n : names) {
+            tasks.add(load(n));
+        }
+        return AssetScheduler.getInstance().whenAll(scene, tasks);
+    }
+}
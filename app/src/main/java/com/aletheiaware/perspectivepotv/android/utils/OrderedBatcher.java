@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Publishes results which complete in any order in their original order, in batches of at most a given size.
+ *
+ * Each completed result is published as soon as all those before it have completed, so the first results aren't held
+ * back by later ones. Failed results are skipped.
+ */
+public class OrderedBatcher<T> {
+
+    public interface Callback<T> {
+        void publish(List<T> batch);
+    }
+
+    private final List<T> results;
+    private final boolean[] done;
+    private final int batchSize;
+    private final Callback<T> callback;
+    private int published;
+
+    public OrderedBatcher(int count, int batchSize, Callback<T> callback) {
+        results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(null);
+        }
+        this.done = new boolean[count];
+        this.batchSize = batchSize;
+        this.callback = callback;
+    }
+
+    /**
+     * Records the result at the given position, or null if it failed, and publishes the results now in order.
+     */
+    public synchronized void complete(int position, T result) {
+        results.set(position, result);
+        done[position] = true;
+        List<T> batch = new ArrayList<>();
+        for (; published < done.length && done[published]; published++) {
+            T r = results.get(published);
+            if (r != null) {
+                batch.add(r);
+                // Release the result, the callback has it now
+                results.set(published, null);
+            }
+            if (batch.size() >= batchSize) {
+                callback.publish(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            callback.publish(batch);
+        }
+    }
+}
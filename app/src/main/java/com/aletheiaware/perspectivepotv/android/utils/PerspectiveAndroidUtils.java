@@ -19,7 +19,6 @@ package com.aletheiaware.perspectivepotv.android.utils;
 import android.content.Context;
 import android.content.res.AssetManager;
 
-import com.aletheiaware.joy.JoyProto.Mesh;
 import com.aletheiaware.joy.android.scene.GLCameraNode;
 import com.aletheiaware.joy.android.scene.GLColourAttribute;
 import com.aletheiaware.joy.android.scene.GLFogNode;
@@ -30,12 +29,9 @@ import com.aletheiaware.joy.android.scene.GLProgramNode;
 import com.aletheiaware.joy.android.scene.GLScene;
 import com.aletheiaware.joy.android.scene.GLTextureAttribute;
 import com.aletheiaware.joy.android.scene.GLUtils;
-import com.aletheiaware.joy.android.scene.GLVertexNormalTextureMesh;
-import com.aletheiaware.joy.android.scene.GLVertexNormalTextureMeshNode;
 import com.aletheiaware.joy.scene.Attribute;
 import com.aletheiaware.joy.scene.AttributeNode;
 import com.aletheiaware.joy.scene.MatrixTransformationNode;
-import com.aletheiaware.joy.scene.MeshLoader;
 import com.aletheiaware.joy.scene.ScaleNode;
 import com.aletheiaware.joy.scene.Scene;
 import com.aletheiaware.joy.scene.TranslateNode;
@@ -44,6 +40,7 @@ import com.aletheiaware.perspective.PerspectiveProto.Solution;
 import com.aletheiaware.perspective.PerspectiveProto.World;
 import com.aletheiaware.perspective.utils.PerspectiveUtils;
 import com.aletheiaware.perspectivepotv.android.scene.BlastNode;
+import com.aletheiaware.perspectivepotv.android.scene.InterleavedMeshNode;
 import com.aletheiaware.perspectivepotv.android.scene.ShipFaceAttribute;
 
 import java.io.IOException;
@@ -92,38 +89,55 @@ public class PerspectiveAndroidUtils {
         return graphs;
     }
 
-    public static World getWorld(AssetManager assets, String world) throws IOException {
-        return PerspectiveUtils.readWorld(assets.open("world/" + world + ".pb"));
+    public static World getWorld(final AssetManager assets, String world) throws IOException {
+        return WorldCache.getInstance().get(world, new WorldCache.Loader() {
+            @Override
+            public World load(String name) throws IOException {
+                try (InputStream in = assets.open("world/" + name + ".pb")) {
+                    return PerspectiveUtils.readWorld(in);
+                }
+            }
+        });
     }
 
+    /**
+     * Saves the solution of the given puzzle, numbered from 1, if it scores better than the solution already saved.
+     */
     @WorkerThread
-    public static void saveSolution(Context context, String world, String puzzle, Solution solution) throws IOException {
-        PerspectiveUtils.saveSolution(context.getFilesDir(), world, puzzle, solution);
+    public static boolean saveSolution(Context context, WorldSummary world, int puzzle, Solution solution) throws IOException {
+        return ProgressStore.getInstance(context).put(world, puzzle, solution);
     }
 
     @WorkerThread
     public static Solution loadSolution(Context context, String world, String puzzle) throws IOException {
-        return PerspectiveUtils.loadSolution(context.getFilesDir(), world, puzzle);
+        return ProgressStore.getInstance(context).get(world, puzzle);
+    }
+
+    @WorkerThread
+    public static WorldProgress loadProgress(Context context, WorldSummary world) throws IOException {
+        return ProgressStore.getInstance(context).getProgress(world);
     }
 
     @WorkerThread
     public static void clearSolutions(Context context) throws IOException {
-        PerspectiveUtils.clearSolutions(context.getFilesDir());
+        ProgressStore.getInstance(context).clear();
     }
 
-    public static void addSceneGraphNode(GLScene scene, Perspective perspective, AssetManager assets, String shader, String name, String type, String mesh, String colour, String texture, String material) throws IOException {
-        System.out.println("Adding Scene Graph Node: " + shader + " " + name + " " + type + " " + mesh + " " + colour + " " + texture + " " + material);
+    public static void addSceneGraphNode(GLScene scene, Perspective perspective, AssetManager assets, MeshRepository meshes, String shader, String name, String type, String mesh, String colour, String texture, String material) throws IOException {
+        if (Trace.DEBUG) {
+            Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_NODE_ADDED, 0, 0, 0, 0, name);
+        }
         switch (type) {
             case "sky": {
                 ScaleNode skyScale = new ScaleNode("sky-scale");
                 perspective.scenegraphs.get(shader).addChild(skyScale);
-                skyScale.addChild(createAttributedMesh(scene, assets, shader, mesh, colour, texture, material));
+                skyScale.addChild(createAttributedMesh(scene, assets, meshes, shader, mesh, colour, texture, material));
                 break;
             }
             case "outline": {
                 ScaleNode outlineScale = new ScaleNode("outline-scale");
                 perspective.scenegraphs.get(shader).addChild(outlineScale);
-                outlineScale.addChild(createAttributedMesh(scene, assets, shader, mesh, colour, texture, material));
+                outlineScale.addChild(createAttributedMesh(scene, assets, meshes, shader, mesh, colour, texture, material));
                 break;
             }
             case "sphere": {
@@ -132,7 +146,7 @@ public class PerspectiveAndroidUtils {
                 // Ensure space ship always points up
                 MatrixTransformationNode rotationNode = new MatrixTransformationNode("inverse-rotation");
                 translateNode.addChild(rotationNode);
-                AttributeNode attributeNode = createAttributedMesh(scene, assets, shader, mesh, colour, texture, material);
+                AttributeNode attributeNode = createAttributedMesh(scene, assets, meshes, shader, mesh, colour, texture, material);
                 switch (shader) {
                     case "blast":
                         BlastNode blastNode = new BlastNode(shader);
@@ -151,7 +165,7 @@ public class PerspectiveAndroidUtils {
             case "portal": {
                 TranslateNode translateNode = new TranslateNode(name);
                 perspective.scenegraphs.get(shader).addChild(translateNode);
-                translateNode.addChild(createAttributedMesh(scene, assets, shader, mesh, colour, texture, material));
+                translateNode.addChild(createAttributedMesh(scene, assets, meshes, shader, mesh, colour, texture, material));
                 break;
             }
             default:
@@ -159,25 +173,31 @@ public class PerspectiveAndroidUtils {
         }
     }
 
-    private static AttributeNode createAttributedMesh(GLScene scene, AssetManager assets, String shader, String mesh, String colour, String texture, String material) throws IOException {
-        ensureMeshLoaded(scene, assets, mesh);
-        System.out.println("Creating: " + shader + " " + mesh + " " + colour + " " + texture + " " + material);
+    private static AttributeNode createAttributedMesh(GLScene scene, AssetManager assets, MeshRepository meshes, String shader, String mesh, String colour, String texture, String material) throws IOException {
+        meshes.load(mesh);
+        if (Trace.DEBUG) {
+            Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_MESH_CREATED, 0, 0, 0, 0, mesh);
+        }
         List<Attribute> attributes = createAttributes(scene, assets, shader, colour, texture, material);
         AttributeNode attributeNode = new AttributeNode(attributes.toArray(new Attribute[0]));
-        attributeNode.addChild(new GLVertexNormalTextureMeshNode(shader, mesh));
+        attributeNode.addChild(new InterleavedMeshNode(shader, mesh, meshes));
         return attributeNode;
     }
 
     private static List<Attribute> createAttributes(final GLScene scene, final AssetManager assets, String shader, String colour, final String texture, String material) {
         List<Attribute> attributes = new ArrayList<>();
         if (colour != null && !colour.isEmpty()) {
-            System.out.println("Creating Colour Attribute: " + colour);
+            if (Trace.DEBUG) {
+                Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_COLOUR_ATTRIBUTE, 0, 0, 0, 0, colour);
+            }
             attributes.add(new GLColourAttribute(shader, colour));
         }
         if (texture != null && !texture.isEmpty()) {
             switch (texture) {
                 case "shipface":
-                    System.out.println("Creating Ship Face Attribute");
+                    if (Trace.DEBUG) {
+                        Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_SHIP_FACE_ATTRIBUTE, 0, 0, 0, 0, null);
+                    }
                     attributes.add(new ShipFaceAttribute(shader) {
                         @Override
                         public void load(String texture) {
@@ -186,7 +206,9 @@ public class PerspectiveAndroidUtils {
                     });
                     break;
                 default:
-                    System.out.println("Creating Texture Attribute: " + texture);
+                    if (Trace.DEBUG) {
+                        Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_TEXTURE_ATTRIBUTE, 0, 0, 0, 0, texture);
+                    }
                     attributes.add(new GLTextureAttribute(shader) {
                         @Override
                         public String getTextureName(Scene scene) {
@@ -202,25 +224,14 @@ public class PerspectiveAndroidUtils {
             }
         }
         if (material != null && !material.isEmpty()) {
-            System.out.println("Creating Material Attribute: " + material);
+            if (Trace.DEBUG) {
+                Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_MATERIAL_ATTRIBUTE, 0, 0, 0, 0, material);
+            }
             attributes.add(new GLMaterialAttribute(shader, material));
         }
         return attributes;
     }
 
-    private static void ensureMeshLoaded(final GLScene scene, final AssetManager assets, final String mesh) throws IOException {
-        if (scene.getIntArray(mesh) == null) {
-            scene.putIntArray(mesh, new int[0]);
-            new MeshLoader(assets.open("mesh/" + mesh)) {
-                @Override
-                public void onMesh(Mesh m) throws IOException {
-                    System.out.println("Loaded Mesh: " + mesh);
-                    scene.putVertexNormalTextureMesh(mesh, new GLVertexNormalTextureMesh(m));
-                }
-            }.start();
-        }
-    }
-
     private static void loadTexture(final GLScene scene, final AssetManager assets, final String texture) {
         try (InputStream in = assets.open("texture/" + texture)) {
             int[] texIds = GLUtils.loadTexture(in);
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import android.content.Context;
+
+import com.aletheiaware.perspective.PerspectiveProto.Solution;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import androidx.annotation.WorkerThread;
+
+/**
+ * Stores the solution of every puzzle in a single append-only log, indexed in memory.
+ *
+ * The whole log is read sequentially once per process. Each commit appends its records in a single checksummed frame and
+ * syncs the file, so a commit interrupted by a crash is detected and discarded whole on the next read. Reading stops at
+ * the first frame which can't be read, keeping every commit before it. The log is compacted when superseded records
+ * outnumber live ones.
+ *
+ * Solutions saved by earlier versions, one file per puzzle, are imported the first time each world is read.
+ *
+ * The stars earned in each world are logged with the solutions, and updated as better solutions are saved, so listing a
+ * world's progress doesn't depend on the number of puzzles. A solution and the stars it earns are committed together.
+ * Stars are recounted for a world whose last solution isn't followed by its progress, and kept in memory until its next
+ * solution is saved.
+ */
+public class ProgressStore {
+
+    private static final String FILE_NAME = "progress.log";
+    private static final int MAGIC = 0x50505247;// PPRG
+    private static final int VERSION = 2;
+    private static final int HEADER_LENGTH = 8;
+    // Record count, body length and body checksum
+    private static final int FRAME_HEADER_LENGTH = 12;
+
+    private static final byte RECORD_SOLUTION = 1;
+    private static final byte RECORD_IMPORTED = 2;
+    private static final byte RECORD_PROGRESS = 3;
+
+    // Don't compact small logs
+    private static final int COMPACT_MIN_RECORDS = 64;
+
+    private static ProgressStore instance;
+
+    private final File directory;
+    private final File file;
+    private final Map<String, Solution> solutions = new HashMap<>();
+    private final Set<String> imported = new HashSet<>();
+    private final Map<String, WorldProgress> progress = new HashMap<>();
+    private int records;
+
+    ProgressStore(File directory) {
+        this.directory = directory;
+        this.file = new File(directory, FILE_NAME);
+        try {
+            read();
+        } catch (IOException e) {
+            e.printStackTrace();
+            // Keep the unreadable log aside and start a new one
+            solutions.clear();
+            imported.clear();
+            progress.clear();
+            records = 0;
+            if (!file.renameTo(new File(directory, FILE_NAME + ".bad"))) {
+                System.err.println("Could not move aside " + file);
+            }
+        }
+    }
+
+    @WorkerThread
+    public static synchronized ProgressStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProgressStore(context.getFilesDir());
+        }
+        return instance;
+    }
+
+    private static String getKey(String world, String puzzle) {
+        return world + "/" + puzzle;
+    }
+
+    /**
+     * Returns the solution of the given puzzle, or null if it hasn't been solved.
+     */
+    @WorkerThread
+    public synchronized Solution get(String world, String puzzle) throws IOException {
+        Solution s = solutions.get(getKey(world, puzzle));
+        if (s == null && !imported.contains(world)) {
+            // The world hasn't been imported yet, so the puzzle may have been saved by an earlier version
+            s = PerspectiveUtils.loadSolution(directory, world, puzzle);
+        }
+        return s;
+    }
+
+    /**
+     * Returns the progress of the given world, first importing any solutions saved by earlier versions.
+     */
+    @WorkerThread
+    public synchronized WorldProgress getProgress(WorldSummary world) throws IOException {
+        if (!imported.contains(world.name)) {
+            importLegacy(world.name, world.hashes);
+        }
+        int identity = Arrays.hashCode(world.hashes);
+        WorldProgress p = progress.get(world.name);
+        if (p == null || p.identity != identity) {
+            // Count the stars of every solution, once
+            int[] stars = new int[world.getPuzzleCount()];
+            for (int i = 0; i < stars.length; i++) {
+                Solution s = solutions.get(getKey(world.name, world.hashes[i]));
+                stars[i] = s == null ? -1 : PerspectiveUtils.scoreToStars(s.getScore(), world.targets[i]);
+            }
+            // Logged with the next solution saved, so reading progress never writes
+            p = new WorldProgress(identity, stars);
+            progress.put(world.name, p);
+        }
+        return p;
+    }
+
+    /**
+     * Saves the solution of the given puzzle, numbered from 1, if it scores better than the solution already saved.
+     *
+     * @return true if the solution was saved.
+     */
+    @WorkerThread
+    public synchronized boolean put(WorldSummary world, int puzzle, Solution solution) throws IOException {
+        WorldProgress p = getProgress(world);
+        String hash = world.hashes[puzzle - 1];
+        Solution previous = solutions.get(getKey(world.name, hash));
+        if (previous != null && previous.getScore() <= solution.getScore()) {
+            return false;
+        }
+        int[] stars = p.getStars();
+        stars[puzzle - 1] = PerspectiveUtils.scoreToStars(solution.getScore(), world.targets[puzzle - 1]);
+        p = new WorldProgress(p.identity, stars);
+        // The solution and the stars are committed together
+        List<byte[]> payloads = new ArrayList<>();
+        payloads.add(encodeSolution(world.name, hash, solution));
+        payloads.add(encodeProgress(world.name, p));
+        commit(payloads);
+        solutions.put(getKey(world.name, hash), solution);
+        progress.put(world.name, p);
+        if (records >= COMPACT_MIN_RECORDS && records > 2 * (solutions.size() + imported.size() + progress.size())) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Deletes every solution, including any saved by earlier versions.
+     */
+    @WorkerThread
+    public synchronized void clear() throws IOException {
+        PerspectiveUtils.clearSolutions(directory);
+        solutions.clear();
+        imported.clear();
+        progress.clear();
+        records = 0;
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete " + file);
+        }
+    }
+
+    private void importLegacy(String world, String[] puzzles) throws IOException {
+        List<byte[]> payloads = new ArrayList<>();
+        Map<String, Solution> found = new HashMap<>();
+        for (String puzzle : puzzles) {
+            String key = getKey(world, puzzle);
+            if (solutions.containsKey(key)) {
+                continue;// Already saved by this version
+            }
+            Solution s = null;
+            try {
+                s = PerspectiveUtils.loadSolution(directory, world, puzzle);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            if (s != null) {
+                payloads.add(encodeSolution(world, puzzle, s));
+                found.put(key, s);
+            }
+        }
+        payloads.add(encodeImported(world));
+        commit(payloads);
+        solutions.putAll(found);
+        imported.add(world);
+        if (!found.isEmpty()) {
+            progress.remove(world);
+        }
+    }
+
+    private void read() throws IOException {
+        long valid = HEADER_LENGTH;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unrecognized progress log " + file);
+            }
+            CRC32 crc = new CRC32();
+            while (true) {
+                int count;
+                byte[] body;
+                try {
+                    count = in.readInt();
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (count <= 0 || length <= 0 || length > file.length()) {
+                        break;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    crc.reset();
+                    crc.update(body, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                List<Record> frame;
+                try {
+                    frame = decodeFrame(body, count);
+                } catch (IOException e) {
+                    // Complete but unreadable, such as a solution which doesn't parse
+                    e.printStackTrace();
+                    break;
+                }
+                for (Record r : frame) {
+                    apply(r);
+                }
+                records += count;
+                valid += FRAME_HEADER_LENGTH + body.length;
+            }
+        } catch (FileNotFoundException e) {
+            return;// Nothing saved yet
+        } catch (EOFException e) {
+            valid = 0;// Header incomplete
+        }
+        // Drop the commit interrupted by a crash, or unreadable, and everything after it, so the next commit follows the
+        // last one read
+        if (valid < file.length()) {
+            System.err.println("Truncating progress log from " + file.length() + " to " + valid);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(valid);
+            }
+        }
+    }
+
+    // Decodes every record of a frame before any is applied, so a frame is applied whole or not at all
+    private static List<Record> decodeFrame(byte[] body, int count) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        List<Record> frame = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            Record r = decode(payload);
+            if (r != null) {
+                frame.add(r);
+            }
+        }
+        if (in.available() > 0) {
+            throw new IOException("Progress frame longer than its records");
+        }
+        return frame;
+    }
+
+    private static Record decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        switch (type) {
+            case RECORD_SOLUTION: {
+                String world = in.readUTF();
+                String puzzle = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new Record(type, world, puzzle, Solution.parseFrom(bytes), null);
+            }
+            case RECORD_IMPORTED:
+                return new Record(type, in.readUTF(), null, null, null);
+            case RECORD_PROGRESS: {
+                String world = in.readUTF();
+                int identity = in.readInt();
+                int[] stars = new int[in.readInt()];
+                for (int i = 0; i < stars.length; i++) {
+                    stars[i] = in.readByte();
+                }
+                return new Record(type, world, null, null, new WorldProgress(identity, stars));
+            }
+            default:
+                System.err.println("Ignoring unknown progress record");
+                return null;
+        }
+    }
+
+    private void apply(Record r) {
+        switch (r.type) {
+            case RECORD_SOLUTION:
+                solutions.put(getKey(r.world, r.puzzle), r.solution);
+                // Stale until a progress record follows, otherwise the stars are recounted
+                progress.remove(r.world);
+                break;
+            case RECORD_IMPORTED:
+                imported.add(r.world);
+                break;
+            case RECORD_PROGRESS:
+                progress.put(r.world, r.progress);
+                break;
+        }
+    }
+
+    private static byte[] encodeSolution(String world, String puzzle, Solution solution) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(RECORD_SOLUTION);
+        out.writeUTF(world);
+        out.writeUTF(puzzle);
+        byte[] bytes = solution.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private static byte[] encodeImported(String world) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(RECORD_IMPORTED);
+        out.writeUTF(world);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private static byte[] encodeProgress(String world, WorldProgress progress) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(RECORD_PROGRESS);
+        out.writeUTF(world);
+        out.writeInt(progress.identity);
+        out.writeInt(progress.getPuzzleCount());
+        for (int i = 0; i < progress.getPuzzleCount(); i++) {
+            out.writeByte(progress.getStars(i));
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    // Appends the records as one frame in a single write, and syncs them to disk before returning
+    private void commit(List<byte[]> payloads) throws IOException {
+        boolean create = file.length() < HEADER_LENGTH;
+        try (FileOutputStream out = new FileOutputStream(file, !create)) {
+            out.write(encodeFrame(payloads, create));
+            out.flush();
+            out.getFD().sync();
+        }
+        records += payloads.size();
+    }
+
+    private static byte[] encodeFrame(List<byte[]> payloads, boolean header) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(body);
+        for (byte[] p : payloads) {
+            records.writeInt(p.length);
+            records.write(p);
+        }
+        records.flush();
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray(), 0, body.size());
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        if (header) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+        out.writeInt(payloads.size());
+        out.writeInt(body.size());
+        out.writeInt((int) crc.getValue());
+        body.writeTo(out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    // Rewrites only the live records to a new log, which atomically replaces the old one
+    private void compact() throws IOException {
+        List<byte[]> payloads = new ArrayList<>();
+        for (String world : imported) {
+            payloads.add(encodeImported(world));
+        }
+        for (Map.Entry<String, Solution> e : solutions.entrySet()) {
+            String key = e.getKey();
+            int separator = key.indexOf('/');// World names never contain a separator
+            payloads.add(encodeSolution(key.substring(0, separator), key.substring(separator + 1), e.getValue()));
+        }
+        for (Map.Entry<String, WorldProgress> e : progress.entrySet()) {
+            payloads.add(encodeProgress(e.getKey(), e.getValue()));
+        }
+        File temp = new File(directory, FILE_NAME + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(encodeFrame(payloads, true));
+            out.flush();
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not rename " + temp + " to " + file);
+        }
+        records = payloads.size();
+    }
+
+    // A decoded record, applied once the rest of its frame has been decoded
+    private static class Record {
+        final byte type;
+        final String world;
+        final String puzzle;
+        final Solution solution;
+        final WorldProgress progress;
+
+        Record(byte type, String world, String puzzle, Solution solution, WorldProgress progress) {
+            this.type = type;
+            this.world = world;
+            this.puzzle = puzzle;
+            this.solution = solution;
+            this.progress = progress;
+        }
+    }
+}
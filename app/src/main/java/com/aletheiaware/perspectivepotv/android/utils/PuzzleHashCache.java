@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+
+import com.aletheiaware.perspective.PerspectiveProto.World;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+import com.aletheiaware.perspectivepotv.android.BuildConfig;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import androidx.annotation.WorkerThread;
+
+/**
+ * A persistent cache of the hashes of each puzzle in a world, keyed by the identity of the world's asset.
+ *
+ * The identity is the length of the asset, from the {@link AssetManifest}, and the version of the app which hashed it,
+ * so a world updated by a new version of the app is hashed again. Neither needs the asset to be read.
+ */
+public class PuzzleHashCache {
+
+    private static final String FILE_NAME = "puzzle-hashes";
+    private static final int VERSION = 2;
+
+    private static PuzzleHashCache instance;
+
+    private final File file;
+    private final int versionCode;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    PuzzleHashCache(File file, int versionCode) {
+        this.file = file;
+        this.versionCode = versionCode;
+        try {
+            read();
+        } catch (IOException e) {
+            e.printStackTrace();
+            entries.clear();
+        }
+    }
+
+    @WorkerThread
+    public static synchronized PuzzleHashCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new PuzzleHashCache(new File(context.getFilesDir(), FILE_NAME), BuildConfig.VERSION_CODE);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the hash of each puzzle in the named world, hashing them only if the world's asset has changed.
+     */
+    @WorkerThread
+    public String[] getHashes(final AssetManager assets, String world) throws IOException {
+        return getHashes(world, getLength(assets, world), new WorldCache.Loader() {
+            @Override
+            public World load(String name) throws IOException {
+                return PerspectiveAndroidUtils.getWorld(assets, name);
+            }
+        });
+    }
+
+    /**
+     * Returns the hash of each puzzle in the named world, loading and hashing the world unless its asset has the given
+     * length and was hashed by this version of the app.
+     */
+    synchronized String[] getHashes(String world, long length, WorldCache.Loader loader) throws IOException {
+        Entry entry = entries.get(world);
+        if (entry == null || entry.length != length || entry.versionCode != versionCode) {
+            World w = loader.load(world);
+            String[] hashes = new String[w.getPuzzleCount()];
+            try {
+                for (int i = 0; i < hashes.length; i++) {
+                    hashes[i] = PerspectiveUtils.getHash(w.getPuzzle(i).toByteArray());
+                }
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+            entry = new Entry(length, versionCode, hashes);
+            entries.put(world, entry);
+            write();
+        }
+        return entry.hashes;
+    }
+
+    // Returns the length of the world's asset from the manifest, only reading the asset if the length isn't listed
+    private static long getLength(AssetManager assets, String world) throws IOException {
+        String path = AssetManifest.TYPE_WORLD + "/" + world + ".pb";
+        AssetManifest.Entry e = AssetManifest.getInstance(assets).getEntry(path);
+        if (e != null && e.size >= 0) {
+            return e.size;
+        }
+        long length = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream in = assets.open(path)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                length += n;
+            }
+        }
+        return length;
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String world = in.readUTF();
+                long length = in.readLong();
+                int versionCode = in.readInt();
+                String[] hashes = new String[in.readInt()];
+                for (int h = 0; h < hashes.length; h++) {
+                    hashes[h] = in.readUTF();
+                }
+                entries.put(world, new Entry(length, versionCode, hashes));
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing cached yet
+        }
+    }
+
+    // Writes to a temporary file then renames it, so a crash never leaves a partial cache
+    private void write() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.length);
+                out.writeInt(entry.versionCode);
+                out.writeInt(entry.hashes.length);
+                for (String h : entry.hashes) {
+                    out.writeUTF(h);
+                }
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not rename " + temp + " to " + file);
+        }
+    }
+
+    private static class Entry {
+        final long length;
+        final int versionCode;
+        final String[] hashes;
+
+        Entry(long length, int versionCode, String[] hashes) {
+            this.length = length;
+            this.versionCode = versionCode;
+            this.hashes = hashes;
+        }
+    }
+}
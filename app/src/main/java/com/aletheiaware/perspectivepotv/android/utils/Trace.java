@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import android.util.Log;
+
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+import com.aletheiaware.perspectivepotv.android.BuildConfig;
+
+/**
+ * Records trace events into a fixed size ring buffer, which can be dumped to the log on demand.
+ *
+ * Trace points should be guarded by the level flags, which are compile time constants set per build type by
+ * BuildConfig.TRACE_LEVEL, so javac removes the guarded trace points from release builds;
+ *
+ * if (Trace.DEBUG) {
+ *     Trace.event(Trace.LEVEL_DEBUG, Trace.EVENT_SPHERE_IN_GOAL, sphere, 0, 0, 0, null);
+ * }
+ *
+ * Events are primitive records with an optional reference to an existing object, so recording never allocates.
+ */
+public final class Trace {
+
+    public static final int LEVEL_VERBOSE = 0;
+    public static final int LEVEL_DEBUG = 1;
+    public static final int LEVEL_NONE = 2;
+
+    // A constant, unlike BuildConfig.DEBUG, so the flags below are constants too
+    private static final int LEVEL = BuildConfig.TRACE_LEVEL;
+    public static final boolean VERBOSE = LEVEL <= LEVEL_VERBOSE;
+    public static final boolean DEBUG = LEVEL <= LEVEL_DEBUG;
+
+    // Launch; a = step count, b = ship count, c = launch axis packed by packAxis
+    public static final int EVENT_LAUNCH = 1;
+    // Sphere stopped; a = sphere, ref = name of the block or sphere hit
+    public static final int EVENT_SPHERE_STOPPED = 2;
+    // Sphere out of bounds; a = sphere
+    public static final int EVENT_SPHERE_OUT_OF_BOUNDS = 3;
+    // Sphere in goal; a = sphere
+    public static final int EVENT_SPHERE_IN_GOAL = 4;
+    // Sphere moved through portal; a = sphere, b, c, d = destination cell
+    public static final int EVENT_SPHERE_PORTAL = 5;
+    // Blast random; a = float bits
+    public static final int EVENT_BLAST_RANDOM = 6;
+    // Scene graph node added; ref = name
+    public static final int EVENT_NODE_ADDED = 7;
+    // Attributed mesh created; ref = mesh
+    public static final int EVENT_MESH_CREATED = 8;
+    // Attribute created; ref = colour, texture or material
+    public static final int EVENT_COLOUR_ATTRIBUTE = 9;
+    public static final int EVENT_SHIP_FACE_ATTRIBUTE = 10;
+    public static final int EVENT_TEXTURE_ATTRIBUTE = 11;
+    public static final int EVENT_MATERIAL_ATTRIBUTE = 12;
+    // Mesh loaded; ref = name
+    public static final int EVENT_MESH_LOADED = 13;
+    // Sphere which isn't a ship ignored by launches; ref = name
+    public static final int EVENT_SPHERE_IGNORED = 14;
+    // Launch simulation stopped with spheres still moving; a = step limit
+    public static final int EVENT_LAUNCH_LIMIT = 15;
+
+    private static final String[] EVENT_NAMES = {
+            "",
+            "Launch",
+            "Sphere Stopped",
+            "Sphere Out Of Bounds",
+            "Sphere In Goal",
+            "Sphere Portal",
+            "Blast Random",
+            "Node Added",
+            "Mesh Created",
+            "Colour Attribute",
+            "Ship Face Attribute",
+            "Texture Attribute",
+            "Material Attribute",
+            "Mesh Loaded",
+            "Sphere Ignored",
+            "Launch Limit",
+    };
+
+    private static final int CAPACITY = DEBUG ? 1024 : 0;
+
+    private static final long[] times = new long[CAPACITY];
+    private static final int[] events = new int[CAPACITY];
+    private static final int[] as = new int[CAPACITY];
+    private static final int[] bs = new int[CAPACITY];
+    private static final int[] cs = new int[CAPACITY];
+    private static final int[] ds = new int[CAPACITY];
+    private static final Object[] refs = new Object[CAPACITY];
+    private static long count;
+
+    private Trace() {}
+
+    public static synchronized void event(int level, int event, int a, int b, int c, int d, Object ref) {
+        if (level < LEVEL || CAPACITY == 0) {
+            return;
+        }
+        int i = (int) (count % CAPACITY);
+        times[i] = System.nanoTime();
+        events[i] = event;
+        as[i] = a;
+        bs[i] = b;
+        cs[i] = c;
+        ds[i] = d;
+        refs[i] = ref;
+        count++;
+    }
+
+    /**
+     * Packs a launch axis of -1, 0, or 1 components into a single int.
+     */
+    public static int packAxis(int[] axis) {
+        return ((axis[0] + 1) << 4) | ((axis[1] + 1) << 2) | (axis[2] + 1);
+    }
+
+    /**
+     * Logs the recorded events, oldest first, and clears the buffer.
+     */
+    public static synchronized void dump() {
+        if (CAPACITY == 0) {
+            return;
+        }
+        long first = Math.max(0, count - CAPACITY);
+        Log.d(PerspectiveUtils.TAG, "Trace: " + (count - first) + " of " + count + " events");
+        long origin = count > 0 ? times[(int) (first % CAPACITY)] : 0;
+        for (long n = first; n < count; n++) {
+            int i = (int) (n % CAPACITY);
+            int e = events[i];
+            String name = e > 0 && e < EVENT_NAMES.length ? EVENT_NAMES[e] : Integer.toString(e);
+            String args;
+            if (e == EVENT_BLAST_RANDOM) {
+                args = Float.toString(Float.intBitsToFloat(as[i]));
+            } else {
+                args = as[i] + " " + bs[i] + " " + cs[i] + " " + ds[i];
+            }
+            Log.d(PerspectiveUtils.TAG, String.format("%9.3fms %s: %s %s", (times[i] - origin) / 1000000.0, name, args, refs[i] == null ? "" : refs[i]));
+            refs[i] = null;
+        }
+        count = 0;
+    }
+}
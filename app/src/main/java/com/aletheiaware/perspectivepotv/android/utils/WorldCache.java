@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspective.PerspectiveProto.World;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A process-wide cache of parsed worlds, keyed by name.
+ *
+ * Recently used worlds are held strongly up to an estimated size, least recently used first out. Worlds pushed out are
+ * held softly, so they can still be reused until the garbage collector needs the memory, and forgotten once it has
+ * cleared them. Concurrent requests for a world which isn't cached share a single parse.
+ */
+public class WorldCache {
+
+    public interface Loader {
+        World load(String name) throws IOException;
+    }
+
+    // Remembers the name of an evicted world, so the entry can be removed once the world is collected
+    private static class EvictedWorld extends SoftReference<World> {
+        final String name;
+
+        EvictedWorld(String name, World world, ReferenceQueue<World> queue) {
+            super(world, queue);
+            this.name = name;
+        }
+    }
+
+    // Parsed messages take several times their serialized size
+    private static final int SIZE_FACTOR = 4;
+    private static final long MAX_SIZE = 8 * 1024 * 1024;
+
+    private static final WorldCache instance = new WorldCache(MAX_SIZE);
+
+    private final long maxSize;
+    private final LinkedHashMap<String, World> worlds = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, EvictedWorld> evicted = new HashMap<>();
+    private final ReferenceQueue<World> collected = new ReferenceQueue<>();
+    private final Map<String, FutureTask<World>> loading = new HashMap<>();
+    private long size;
+
+    public WorldCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static WorldCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the named world, loading it with the given loader if it isn't cached.
+     */
+    public World get(final String name, final Loader loader) throws IOException {
+        FutureTask<World> task;
+        boolean owner = false;
+        synchronized (this) {
+            World world = getCached(name);
+            if (world != null) {
+                return world;
+            }
+            task = loading.get(name);
+            if (task == null) {
+                task = new FutureTask<>(new Callable<World>() {
+                    @Override
+                    public World call() throws Exception {
+                        return loader.load(name);
+                    }
+                });
+                loading.put(name, task);
+                owner = true;
+            }
+        }
+        if (owner) {
+            // Parse on this thread, others wait for the result
+            task.run();
+        }
+        try {
+            World world = task.get();
+            if (owner) {
+                synchronized (this) {
+                    put(name, world);
+                }
+            }
+            return world;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            if (owner) {
+                synchronized (this) {
+                    loading.remove(name);
+                }
+            }
+        }
+    }
+
+    private World getCached(String name) {
+        purge();
+        World world = worlds.get(name);
+        if (world == null) {
+            EvictedWorld reference = evicted.remove(name);
+            if (reference != null) {
+                world = reference.get();
+                if (world != null) {
+                    put(name, world);
+                }
+            }
+        }
+        return world;
+    }
+
+    private void put(String name, World world) {
+        World previous = worlds.put(name, world);
+        if (previous != null) {
+            size -= getSize(previous);
+        }
+        size += getSize(world);
+        // Always keep the newest world, even if it alone exceeds the limit
+        while (size > maxSize && worlds.size() > 1) {
+            Map.Entry<String, World> eldest = worlds.entrySet().iterator().next();
+            worlds.remove(eldest.getKey());
+            size -= getSize(eldest.getValue());
+            evicted.put(eldest.getKey(), new EvictedWorld(eldest.getKey(), eldest.getValue(), collected));
+        }
+    }
+
+    // Removes the entries of evicted worlds the garbage collector has cleared
+    private void purge() {
+        Reference<? extends World> reference;
+        while ((reference = collected.poll()) != null) {
+            EvictedWorld e = (EvictedWorld) reference;
+            // The world may have been evicted again since, under a new reference
+            if (evicted.get(e.name) == e) {
+                evicted.remove(e.name);
+            }
+        }
+    }
+
+    private static long getSize(World world) {
+        return (long) world.getSerializedSize() * SIZE_FACTOR;
+    }
+
+    public synchronized void clear() {
+        worlds.clear();
+        evicted.clear();
+        purge();
+        size = 0;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspective.PerspectiveProto.World;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the index of {@link WorldSummary} for every world in a directory, run at build time.
+ *
+ * Usage: WorldIndexGenerator [world directory] [index file]
+ */
+public class WorldIndexGenerator {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: WorldIndexGenerator [world directory] [index file]");
+            System.exit(1);
+        }
+        File directory = new File(args[0]);
+        File index = new File(args[1]);
+        File[] files = directory.listFiles();
+        if (files == null) {
+            System.err.println("Not a directory: " + directory);
+            System.exit(1);
+        }
+        Arrays.sort(files);
+        List<WorldSummary> summaries = new ArrayList<>();
+        for (File f : files) {
+            if (!f.getName().endsWith(".pb")) {
+                continue;
+            }
+            try (InputStream in = new FileInputStream(f)) {
+                World world = PerspectiveUtils.readWorld(in);
+                summaries.add(WorldSummary.of(world));
+            } catch (IOException e) {
+                System.err.println("Could not read world: " + f);
+                throw e;
+            }
+        }
+        File parent = index.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory: " + parent);
+        }
+        try (OutputStream out = new FileOutputStream(index)) {
+            WorldSummary.writeIndex(summaries, out);
+        }
+        System.out.println("Indexed " + summaries.size() + " worlds to " + index);
+    }
+}
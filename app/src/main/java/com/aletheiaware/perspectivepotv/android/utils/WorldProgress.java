@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+/**
+ * The stars earned on each puzzle of a world, with their total, maintained as solutions are saved.
+ */
+public class WorldProgress {
+
+    // Identifies the puzzles the stars were earned on, so progress is recomputed if a world changes
+    final int identity;
+    // Stars earned on each puzzle, or -1 if the puzzle hasn't been solved
+    private final int[] stars;
+    private final int total;
+    private final boolean completed;
+
+    WorldProgress(int identity, int[] stars) {
+        this.identity = identity;
+        this.stars = stars;
+        int t = 0;
+        boolean c = stars.length > 0;
+        for (int s : stars) {
+            if (s < 0) {
+                c = false;
+            } else {
+                t += s;
+            }
+        }
+        total = t;
+        completed = c;
+    }
+
+    public int[] getStars() {
+        return stars.clone();
+    }
+
+    public int getStars(int puzzle) {
+        return stars[puzzle];
+    }
+
+    public int getPuzzleCount() {
+        return stars.length;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspective.PerspectiveProto.World;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parts of a world needed to list it; name, title, and the target and hash of each puzzle.
+ *
+ * Summaries of every world are bundled in a single index asset, so the world list doesn't parse each world.
+ */
+public class WorldSummary {
+
+    public static final String INDEX_ASSET = "world/index.bin";
+
+    private static final int INDEX_MAGIC = 0x50574958;// PWIX
+    private static final int INDEX_VERSION = 1;
+
+    public final String name;
+    public final String title;
+    public final int[] targets;
+    public final String[] hashes;
+
+    public WorldSummary(String name, String title, int[] targets, String[] hashes) {
+        this.name = name;
+        this.title = title;
+        this.targets = targets;
+        this.hashes = hashes;
+    }
+
+    public static WorldSummary of(World world) throws NoSuchAlgorithmException {
+        String[] hashes = new String[world.getPuzzleCount()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = PerspectiveUtils.getHash(world.getPuzzle(i).toByteArray());
+        }
+        return of(world, hashes);
+    }
+
+    /**
+     * Returns the summary of the given world with the hashes of its puzzles already known.
+     */
+    public static WorldSummary of(World world, String[] hashes) {
+        int[] targets = new int[world.getPuzzleCount()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = world.getPuzzle(i).getTarget();
+        }
+        return new WorldSummary(world.getName(), world.getTitle(), targets, hashes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getPuzzleCount() {
+        return targets.length;
+    }
+
+    /**
+     * Reads an index of summaries, keyed by world name.
+     */
+    public static Map<String, WorldSummary> readIndex(InputStream in) throws IOException {
+        DataInputStream input = new DataInputStream(in);
+        if (input.readInt() != INDEX_MAGIC) {
+            throw new IOException("Not a world index");
+        }
+        int version = input.readInt();
+        if (version != INDEX_VERSION) {
+            throw new IOException("Unsupported world index version: " + version);
+        }
+        int count = input.readInt();
+        Map<String, WorldSummary> summaries = new HashMap<>();
+        for (int w = 0; w < count; w++) {
+            String name = input.readUTF();
+            String title = input.readUTF();
+            int puzzles = input.readInt();
+            int[] targets = new int[puzzles];
+            String[] hashes = new String[puzzles];
+            for (int p = 0; p < puzzles; p++) {
+                targets[p] = input.readInt();
+                hashes[p] = input.readUTF();
+            }
+            summaries.put(name, new WorldSummary(name, title, targets, hashes));
+        }
+        return summaries;
+    }
+
+    public static void writeIndex(Collection<WorldSummary> summaries, OutputStream out) throws IOException {
+        DataOutputStream output = new DataOutputStream(out);
+        output.writeInt(INDEX_MAGIC);
+        output.writeInt(INDEX_VERSION);
+        output.writeInt(summaries.size());
+        for (WorldSummary s : summaries) {
+            output.writeUTF(s.name);
+            output.writeUTF(s.title);
+            output.writeInt(s.targets.length);
+            for (int p = 0; p < s.targets.length; p++) {
+                output.writeInt(s.targets[p]);
+                output.writeUTF(s.hashes[p]);
+            }
+        }
+        output.flush();
+    }
+}
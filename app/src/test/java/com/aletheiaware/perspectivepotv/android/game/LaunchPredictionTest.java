@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchPredictionTest {
+
+    private static final int[] UP = {0, 1, 0};
+
+    private static ElementIndex createPuzzle() {
+        return new PuzzleBuilder(5)
+                .ship(0, 0, 0)
+                .ship(0, 1, 0)
+                .portal(0, 3, 0, 4, 0, 4)
+                .goal(4, 3, 4)
+                .build();
+    }
+
+    // Waits for the predictor's worker to predict the given launch
+    private static LaunchPrediction await(LaunchPredictor predictor, int[] axis, int[] cells, int count) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            LaunchPrediction prediction = predictor.getPrediction(axis, cells, count);
+            if (prediction != null) {
+                return prediction;
+            }
+            Thread.sleep(10);
+        }
+        return null;
+    }
+
+    @Test
+    public void predictionMatchesSimulation() {
+        ElementIndex index = createPuzzle();
+        LaunchSimulation simulation = new LaunchSimulation(index.grid);
+        simulation.simulate(UP, index.sphereNames, index.sphereCells, index.shipCount);
+        LaunchPrediction prediction = LaunchPrediction.of(simulation, index.sphereCells);
+        assertTrue(prediction.matches(UP, index.sphereCells, index.shipCount));
+        assertFalse(prediction.matches(new int[] {0, -1, 0}, index.sphereCells, index.shipCount));
+        assertEquals(simulation.getStepCount(), prediction.getStepCount());
+        int[] a = new int[3];
+        int[] b = new int[3];
+        for (int i = 0; i < index.shipCount; i++) {
+            assertArrayEquals(simulation.getEnd(i, a), prediction.getEnd(i, b));
+            for (int s = 0; s < simulation.getStepCount(); s++) {
+                assertEquals(simulation.getEvents(s, i), prediction.getEvents(s, i));
+                assertArrayEquals(simulation.getFrom(s, i, a), prediction.getFrom(s, i, b));
+                assertArrayEquals(simulation.getExit(s, i, a), prediction.getExit(s, i, b));
+            }
+        }
+        assertArrayEquals(LaunchOutcome.of(simulation).ends, prediction.outcome.ends);
+    }
+
+    @Test
+    public void predictorPredictsEveryAxis() throws InterruptedException {
+        ElementIndex index = createPuzzle();
+        LaunchPredictor predictor = new LaunchPredictor();
+        try {
+            predictor.reset(index.grid);
+            predictor.predict(index.sphereNames, index.sphereCells, index.shipCount);
+            LaunchSimulation simulation = new LaunchSimulation(index.grid);
+            for (int[] axis : LaunchPredictor.AXES) {
+                LaunchPrediction prediction = await(predictor, axis, index.sphereCells, index.shipCount);
+                assertNotNull(prediction);
+                simulation.simulate(axis, index.sphereNames, index.sphereCells, index.shipCount);
+                assertArrayEquals(LaunchOutcome.of(simulation).ends, prediction.outcome.ends);
+            }
+            // Predictions of the previous puzzle are discarded
+            predictor.reset(index.grid);
+            assertNull(predictor.getPrediction(UP, index.sphereCells, index.shipCount));
+        } finally {
+            predictor.shutdown();
+        }
+    }
+}
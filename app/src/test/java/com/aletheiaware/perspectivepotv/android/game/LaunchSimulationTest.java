@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchSimulationTest {
+
+    private static final int[] UP = {0, 1, 0};
+
+    private static LaunchSimulation launch(ElementIndex index, int[] axis) {
+        LaunchSimulation simulation = new LaunchSimulation(index.grid);
+        simulation.simulate(axis, index.sphereNames, index.sphereCells, index.shipCount);
+        return simulation;
+    }
+
+    private static int getAllEvents(LaunchSimulation simulation, int sphere) {
+        int events = simulation.getStartEvents(sphere);
+        for (int s = 0; s < simulation.getStepCount(); s++) {
+            events |= simulation.getEvents(s, sphere);
+        }
+        return events;
+    }
+
+    @Test
+    public void goalReached() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 0, 1).goal(1, 2, 1).build();
+        LaunchSimulation simulation = launch(index, UP);
+        assertArrayEquals(new int[] {1, 2, 1}, simulation.getEnd(0, new int[3]));
+        assertEquals(2, simulation.getStepCount());
+        assertTrue((simulation.getEvents(1, 0) & LaunchSimulation.EVENT_GOAL_REACHED) != 0);
+        LaunchOutcome outcome = LaunchOutcome.of(simulation);
+        assertTrue(outcome.won);
+        assertFalse(outcome.lost);
+    }
+
+    @Test
+    public void blockHit() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 0, 1).block(1, 2, 1).build();
+        LaunchSimulation simulation = launch(index, UP);
+        assertArrayEquals(new int[] {1, 1, 1}, simulation.getEnd(0, new int[3]));
+        assertTrue((simulation.getEvents(0, 0) & LaunchSimulation.EVENT_BLOCK_HIT) != 0);
+        assertEquals("b0", simulation.getHit(0, 0));
+        LaunchOutcome outcome = LaunchOutcome.of(simulation);
+        assertFalse(outcome.won);
+        assertFalse(outcome.lost);
+    }
+
+    @Test
+    public void blockedBeforeLaunch() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 1, 1).block(1, 2, 1).build();
+        LaunchSimulation simulation = launch(index, UP);
+        assertEquals(0, simulation.getStepCount());
+        assertEquals(LaunchSimulation.EVENT_BLOCK_HIT, simulation.getStartEvents(0));
+        assertEquals("b0", simulation.getStartHit(0));
+        assertArrayEquals(new int[] {1, 1, 1}, simulation.getEnd(0, new int[3]));
+    }
+
+    @Test
+    public void outOfBounds() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 0, 1).build();
+        LaunchSimulation simulation = launch(index, UP);
+        int events = getAllEvents(simulation, 0);
+        assertTrue((events & LaunchSimulation.EVENT_OUTLINE_CROSSED) != 0);
+        assertTrue((events & LaunchSimulation.EVENT_OUT_OF_BOUNDS) != 0);
+        // The outline is crossed once, on leaving the puzzle
+        int crossings = 0;
+        for (int s = 0; s < simulation.getStepCount(); s++) {
+            if ((simulation.getEvents(s, 0) & LaunchSimulation.EVENT_OUTLINE_CROSSED) != 0) {
+                crossings++;
+            }
+        }
+        assertEquals(1, crossings);
+        int[] end = simulation.getEnd(0, new int[3]);
+        assertTrue(index.grid.isOutOfBounds(end[0], end[1], end[2], 4));
+        LaunchOutcome outcome = LaunchOutcome.of(simulation);
+        assertTrue(outcome.lost);
+        assertFalse(outcome.won);
+    }
+
+    @Test
+    public void shipsLandOnEachOther() {
+        // Three ships in a column under a block; the front one lands on the block and the others on the ship ahead
+        ElementIndex index = new PuzzleBuilder(5)
+                .ship(2, 0, 2)
+                .ship(2, 1, 2)
+                .ship(2, 2, 2)
+                .block(2, 4, 2)
+                .build();
+        LaunchSimulation simulation = launch(index, UP);
+        int[] cell = new int[3];
+        assertArrayEquals(new int[] {2, 1, 2}, simulation.getEnd(0, cell));
+        assertArrayEquals(new int[] {2, 2, 2}, simulation.getEnd(1, cell));
+        assertArrayEquals(new int[] {2, 3, 2}, simulation.getEnd(2, cell));
+        assertTrue((getAllEvents(simulation, 2) & LaunchSimulation.EVENT_BLOCK_HIT) != 0);
+        assertTrue((getAllEvents(simulation, 1) & LaunchSimulation.EVENT_SPHERE_HIT) != 0);
+        assertTrue((getAllEvents(simulation, 0) & LaunchSimulation.EVENT_SPHERE_HIT) != 0);
+        assertEquals(0, getAllEvents(simulation, 0) & LaunchSimulation.EVENT_BLOCK_HIT);
+    }
+
+    @Test
+    public void otherSpheresIgnored() {
+        // Only ships are launched, and spheres which aren't ships don't get in their way
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 0, 1).sphere(1, 2, 1).goal(1, 2, 1).build();
+        assertEquals(1, index.shipCount);
+        assertEquals(2, index.sphereNames.length);
+        LaunchSimulation simulation = launch(index, UP);
+        assertEquals(1, simulation.getSphereCount());
+        assertArrayEquals(new int[] {1, 2, 1}, simulation.getEnd(0, new int[3]));
+        assertEquals(0, getAllEvents(simulation, 0) & LaunchSimulation.EVENT_SPHERE_HIT);
+    }
+
+    @Test
+    public void independentShips() {
+        ElementIndex index = new PuzzleBuilder(3)
+                .ship(0, 0, 0)
+                .ship(2, 0, 2)
+                .goal(0, 2, 0)
+                .block(2, 2, 2)
+                .build();
+        LaunchSimulation simulation = launch(index, UP);
+        int[] cell = new int[3];
+        assertArrayEquals(new int[] {0, 2, 0}, simulation.getEnd(0, cell));
+        assertArrayEquals(new int[] {2, 1, 2}, simulation.getEnd(1, cell));
+        LaunchOutcome outcome = LaunchOutcome.of(simulation);
+        assertFalse(outcome.won);
+        assertFalse(outcome.lost);
+    }
+
+    @Test
+    public void portalTraversed() {
+        // The portal leads to the bottom of another column, which ends at a goal
+        ElementIndex index = new PuzzleBuilder(5)
+                .ship(0, 0, 0)
+                .portal(0, 2, 0, 4, 0, 4)
+                .goal(4, 3, 4)
+                .build();
+        LaunchSimulation simulation = launch(index, UP);
+        assertArrayEquals(new int[] {4, 3, 4}, simulation.getEnd(0, new int[3]));
+        assertTrue((getAllEvents(simulation, 0) & LaunchSimulation.EVENT_PORTAL_TRAVERSED) != 0);
+        assertFalse(simulation.isLooped());
+        LaunchOutcome outcome = LaunchOutcome.of(simulation);
+        assertTrue(outcome.won);
+        assertEquals(1, outcome.portals);
+    }
+
+    @Test
+    public void portalLoopEnds() {
+        // The portal leads back to where the ship started, so it would travel forever
+        ElementIndex index = new PuzzleBuilder(3)
+                .ship(1, 0, 1)
+                .portal(1, 2, 1, 1, 0, 1)
+                .build();
+        LaunchSimulation simulation = launch(index, UP);
+        assertTrue(simulation.isLooped());
+        LaunchOutcome outcome = LaunchOutcome.of(simulation);
+        assertFalse(outcome.won);
+        assertFalse(outcome.lost);
+    }
+
+    @Test
+    public void reusedForAnotherLaunch() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 1, 1).block(1, 2, 1).build();
+        LaunchSimulation simulation = new LaunchSimulation(index.grid);
+        simulation.simulate(new int[] {0, -1, 0}, index.sphereNames, index.sphereCells, index.shipCount);
+        assertTrue(LaunchOutcome.of(simulation).lost);
+        simulation.simulate(UP, index.sphereNames, index.sphereCells, index.shipCount);
+        assertEquals(0, simulation.getStepCount());
+        assertArrayEquals(new int[] {1, 1, 1}, simulation.getEnd(0, new int[3]));
+        assertEquals("b0", simulation.getStartHit(0));
+        assertFalse(LaunchOutcome.of(simulation).lost);
+    }
+}
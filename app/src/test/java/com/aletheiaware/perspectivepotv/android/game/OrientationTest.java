@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrientationTest {
+
+    private static final int[][] VECTORS = {
+            {1, 0, 0},
+            {0, 1, 0},
+            {0, 0, 1},
+            {1, 2, 3},
+    };
+
+    @Test
+    public void identity() {
+        for (int[] v : VECTORS) {
+            assertArrayEquals(v, Orientation.apply(Orientation.IDENTITY, v, new int[3]));
+        }
+        for (int o = 0; o < Orientation.COUNT; o++) {
+            assertEquals(o, Orientation.multiply(o, Orientation.IDENTITY));
+            assertEquals(o, Orientation.multiply(Orientation.IDENTITY, o));
+        }
+    }
+
+    @Test
+    public void distinct() {
+        Set<String> images = new HashSet<>();
+        for (int o = 0; o < Orientation.COUNT; o++) {
+            int[] v = Orientation.apply(o, VECTORS[3], new int[3]);
+            images.add(v[0] + "," + v[1] + "," + v[2]);
+        }
+        assertEquals(Orientation.COUNT, images.size());
+    }
+
+    @Test
+    public void composeIsClosed() {
+        for (int a = 0; a < Orientation.COUNT; a++) {
+            for (int b = 0; b < Orientation.COUNT; b++) {
+                int ab = Orientation.multiply(a, b);
+                assertTrue(ab >= 0 && ab < Orientation.COUNT);
+                for (int[] v : VECTORS) {
+                    int[] expected = Orientation.apply(a, Orientation.apply(b, v, new int[3]), new int[3]);
+                    assertArrayEquals(expected, Orientation.apply(ab, v, new int[3]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void composeIsAssociative() {
+        for (int a = 0; a < Orientation.COUNT; a++) {
+            for (int b = 0; b < Orientation.COUNT; b++) {
+                for (int c = 0; c < Orientation.COUNT; c++) {
+                    assertEquals(Orientation.multiply(Orientation.multiply(a, b), c), Orientation.multiply(a, Orientation.multiply(b, c)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void inverse() {
+        for (int o = 0; o < Orientation.COUNT; o++) {
+            int i = Orientation.inverse(o);
+            assertEquals(Orientation.IDENTITY, Orientation.multiply(o, i));
+            assertEquals(Orientation.IDENTITY, Orientation.multiply(i, o));
+            assertEquals(o, Orientation.inverse(i));
+            for (int[] v : VECTORS) {
+                assertArrayEquals(v, Orientation.apply(i, Orientation.apply(o, v, new int[3]), new int[3]));
+            }
+        }
+    }
+
+    @Test
+    public void turns() {
+        for (int o = 0; o < Orientation.COUNT; o++) {
+            for (int t = 0; t < Orientation.TURN_COUNT; t++) {
+                int turned = Orientation.turn(o, t);
+                assertNotEquals(o, turned);
+                // Four quarter turns return to the start
+                assertEquals(o, Orientation.turn(Orientation.turn(Orientation.turn(turned, t), t), t));
+            }
+            assertEquals(o, Orientation.turn(Orientation.turn(o, Orientation.TURN_X_POSITIVE), Orientation.TURN_X_NEGATIVE));
+            assertEquals(o, Orientation.turn(Orientation.turn(o, Orientation.TURN_Y_POSITIVE), Orientation.TURN_Y_NEGATIVE));
+        }
+    }
+
+    @Test
+    public void turnsReachEveryOrientation() {
+        Set<Integer> reached = new HashSet<>();
+        reached.add(Orientation.IDENTITY);
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            for (Integer o : new HashSet<>(reached)) {
+                for (int t = 0; t < Orientation.TURN_COUNT; t++) {
+                    grew |= reached.add(Orientation.turn(o, t));
+                }
+            }
+        }
+        assertEquals(Orientation.COUNT, reached.size());
+    }
+
+    @Test
+    public void launchAxis() {
+        int[] up = {0, 1, 0};
+        assertArrayEquals(up, Orientation.getLaunchAxis(Orientation.IDENTITY, up, new int[3]));
+        for (int o = 0; o < Orientation.COUNT; o++) {
+            int[] axis = Orientation.getLaunchAxis(o, up, new int[3]);
+            // The launch axis, seen in the orientation, points up the view
+            assertArrayEquals(up, Orientation.apply(o, axis, new int[3]));
+        }
+    }
+
+    @Test
+    public void toAxis() {
+        assertArrayEquals(new int[] {0, 1, 0}, Orientation.toAxis(new float[] {0.1f, 0.9f, -0.2f}, new int[3]));
+        assertArrayEquals(new int[] {0, 0, -1}, Orientation.toAxis(new float[] {0.1f, 0.2f, -0.7f}, new int[3]));
+        assertArrayEquals(new int[] {-1, 0, 0}, Orientation.toAxis(new float[] {-1f, 0f, 0f}, new int[3]));
+    }
+}
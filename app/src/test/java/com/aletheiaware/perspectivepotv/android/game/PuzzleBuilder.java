@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.game;
+
+import com.aletheiaware.joy.scene.Vector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the index of a puzzle from cell coordinates, without importing a puzzle into a scene.
+ */
+public class PuzzleBuilder {
+
+    private final int size;
+    private final List<String> blockNames = new ArrayList<>();
+    private final List<Vector> blocks = new ArrayList<>();
+    private final List<String> goalNames = new ArrayList<>();
+    private final List<Vector> goals = new ArrayList<>();
+    private final List<String> shipNames = new ArrayList<>();
+    private final List<Vector> ships = new ArrayList<>();
+    private final List<String> otherNames = new ArrayList<>();
+    private final List<Vector> others = new ArrayList<>();
+    private final Map<Vector, Vector> portals = new HashMap<>();
+
+    public PuzzleBuilder(int size) {
+        this.size = size;
+    }
+
+    public PuzzleBuilder block(int x, int y, int z) {
+        blockNames.add("b" + blocks.size());
+        blocks.add(toVector(x, y, z));
+        return this;
+    }
+
+    public PuzzleBuilder goal(int x, int y, int z) {
+        goalNames.add("g" + goals.size());
+        goals.add(toVector(x, y, z));
+        return this;
+    }
+
+    public PuzzleBuilder ship(int x, int y, int z) {
+        shipNames.add("s" + ships.size());
+        ships.add(toVector(x, y, z));
+        return this;
+    }
+
+    /**
+     * Adds a sphere which isn't launched, but which ships can land on.
+     */
+    public PuzzleBuilder sphere(int x, int y, int z) {
+        otherNames.add("o" + others.size());
+        others.add(toVector(x, y, z));
+        return this;
+    }
+
+    public PuzzleBuilder portal(int x, int y, int z, int toX, int toY, int toZ) {
+        portals.put(toVector(x, y, z), toVector(toX, toY, toZ));
+        return this;
+    }
+
+    public ElementIndex build() {
+        List<String> sphereNames = new ArrayList<>(shipNames);
+        sphereNames.addAll(otherNames);
+        List<Vector> spheres = new ArrayList<>(ships);
+        spheres.addAll(others);
+        return new ElementIndex(size,
+                blockNames.toArray(new String[0]),
+                blocks.toArray(new Vector[0]),
+                goalNames.toArray(new String[0]),
+                goals.toArray(new Vector[0]),
+                sphereNames.toArray(new String[0]),
+                spheres.toArray(new Vector[0]),
+                ships.size(),
+                portals);
+    }
+
+    private Vector toVector(int x, int y, int z) {
+        float offset = (size - 1) / 2f;
+        return new Vector(x - offset, y - offset, z - offset);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.scene;
+
+import com.aletheiaware.perspectivepotv.android.game.ElementIndex;
+import com.aletheiaware.perspectivepotv.android.game.LaunchPrediction;
+import com.aletheiaware.perspectivepotv.android.game.LaunchSimulation;
+import com.aletheiaware.perspectivepotv.android.game.PuzzleBuilder;
+import com.aletheiaware.perspectivepotv.android.game.VoxelGrid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchAnimationTest {
+
+    private static final int[] UP = {0, 1, 0};
+    private static final long FRAME = 1000000000L / 60;
+
+    // Records the callbacks of an animation
+    private static class RecordingAnimation extends LaunchAnimation {
+        final List<String> calls = new ArrayList<>();
+
+        RecordingAnimation(Clock clock, ElementIndex index) {
+            super(clock, index);
+        }
+
+        @Override
+        public void onBegin() {
+            calls.add("begin");
+        }
+
+        @Override
+        public void onComplete() {
+            calls.add("complete");
+        }
+
+        @Override
+        public void onBlastComplete() {
+            calls.add("blast");
+        }
+
+        @Override
+        public void onBlockHit(String block) {
+            calls.add("block " + block);
+        }
+
+        @Override
+        public void onSphereHit(String sphere) {
+            calls.add("sphere " + sphere);
+        }
+
+        @Override
+        public void onPortalTraversed() {
+            calls.add("portal");
+        }
+
+        @Override
+        public void onOutlineCrossed() {
+            calls.add("outline");
+        }
+    }
+
+    // Ticks the animation one frame at a time until it finishes, returning the number of frames
+    private static int run(ManualClock clock, LaunchAnimation animation) {
+        int frames = 1;
+        while (!animation.tick()) {
+            clock.step();
+            frames++;
+            assertTrue(frames < 100000);
+        }
+        animation.onComplete();
+        return frames;
+    }
+
+    private static ElementIndex createPuzzle() {
+        return new PuzzleBuilder(5)
+                .ship(0, 0, 0)
+                .ship(4, 0, 4)
+                .ship(4, 1, 4)
+                .block(4, 3, 4)
+                .block(2, 4, 2)
+                .portal(0, 2, 0, 2, 0, 2)
+                .build();
+    }
+
+    @Test
+    public void distance() {
+        assertEquals(0, LaunchAnimation.getDistance(0));
+        assertEquals(0, LaunchAnimation.getDistance(-5));
+        long previous = 0;
+        for (long t = 1; t < 10000; t += 7) {
+            long d = LaunchAnimation.getDistance(t);
+            assertTrue(d >= previous);
+            previous = d;
+        }
+        // t^3 / 10 cells after t seconds of burn
+        assertEquals(VoxelGrid.FIXED_ONE / 10, LaunchAnimation.getDistance(1000));
+    }
+
+    @Test
+    public void playsOutSimulation() {
+        ElementIndex index = createPuzzle();
+        LaunchSimulation simulation = new LaunchSimulation(index.grid);
+        simulation.simulate(UP, index.sphereNames, index.sphereCells, index.shipCount);
+        ManualClock clock = new ManualClock(FRAME);
+        RecordingAnimation animation = new RecordingAnimation(clock, index);
+        animation.reset(simulation, null);
+        run(clock, animation);
+        assertEquals("begin", animation.calls.get(0));
+        assertEquals("complete", animation.calls.get(animation.calls.size() - 1));
+        assertTrue(animation.calls.contains("portal"));
+        assertTrue(animation.calls.contains("block b0"));
+        assertTrue(animation.calls.contains("block b1"));
+        assertTrue(animation.calls.contains("sphere s2"));
+        assertTrue(animation.calls.contains("blast"));
+        // The ships were moved to where the simulation left them
+        int[] cell = new int[3];
+        for (int i = 0; i < index.shipCount; i++) {
+            assertArrayEquals(simulation.getEnd(i, cell), index.grid.toCell(index.spheres[i], new int[3]));
+        }
+        assertArrayEquals(simulation.getEnd(0, cell), animation.getOutcome().getEnd(0, new int[3]));
+    }
+
+    @Test
+    public void sameFramesEveryRun() {
+        // With a manual clock the animation is deterministic, and reusing it plays out the same
+        ElementIndex first = createPuzzle();
+        ElementIndex second = createPuzzle();
+        LaunchSimulation simulation = new LaunchSimulation(first.grid);
+        simulation.simulate(UP, first.sphereNames, first.sphereCells, first.shipCount);
+        LaunchPrediction prediction = LaunchPrediction.of(simulation, first.sphereCells);
+
+        ManualClock clock = new ManualClock(FRAME);
+        RecordingAnimation a = new RecordingAnimation(clock, first);
+        a.reset(simulation, null);
+        int framesA = run(clock, a);
+
+        clock.set(0);
+        RecordingAnimation b = new RecordingAnimation(clock, second);
+        b.reset(prediction, prediction.outcome);
+        int framesB = run(clock, b);
+        assertEquals(framesA, framesB);
+        assertEquals(a.calls, b.calls);
+
+        // Put the ships back and launch again with the same animation
+        List<String> calls = new ArrayList<>(a.calls);
+        a.calls.clear();
+        int[] cell = new int[3];
+        for (int i = 0; i < first.shipCount; i++) {
+            prediction.getFrom(0, i, cell);
+            first.grid.toVector(cell[0], cell[1], cell[2], first.spheres[i]);
+        }
+        clock.set(0);
+        a.reset(prediction, prediction.outcome);
+        assertEquals(framesA, run(clock, a));
+        assertEquals(calls, a.calls);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.scene;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ManualClockTest {
+
+    @Test
+    public void startsAtZero() {
+        assertEquals(0, new ManualClock(10).getNanos());
+    }
+
+    @Test
+    public void onlyMovesWhenTold() {
+        ManualClock clock = new ManualClock(10);
+        clock.set(100);
+        assertEquals(100, clock.getNanos());
+        assertEquals(100, clock.getNanos());
+        clock.advance(5);
+        assertEquals(105, clock.getNanos());
+        clock.step();
+        clock.step();
+        assertEquals(125, clock.getNanos());
+        clock.set(-20);
+        assertEquals(-20, clock.getNanos());
+    }
+}
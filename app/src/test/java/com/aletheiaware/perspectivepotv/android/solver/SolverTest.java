@@ -0,0 +1,285 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import com.aletheiaware.perspectivepotv.android.game.ElementIndex;
+import com.aletheiaware.perspectivepotv.android.game.PuzzleBuilder;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SolverTest {
+
+    private static final int[] UP = {0, 1, 0};
+
+    private static Solver.Result solve(ElementIndex index) {
+        return solve(index, true);
+    }
+
+    private static Solver.Result solve(ElementIndex index, boolean symmetric) {
+        Solver solver = new Solver(index, UP);
+        solver.setSymmetric(symmetric);
+        return solver.solve();
+    }
+
+    private static int count(int[] actions, int action) {
+        int count = 0;
+        for (int a : actions) {
+            if (a == action) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void launchOnly() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 0, 1).goal(1, 2, 1).build();
+        Solver.Result result = solve(index);
+        assertTrue(result.solved);
+        assertEquals(0, result.score);
+        assertArrayEquals(new int[] {Solver.ACTION_LAUNCH}, result.actions);
+        assertArrayEquals(new int[] {1, 2, 1}, result.cells[0]);
+    }
+
+    @Test
+    public void oneTurn() {
+        // Launching up loses, the goal is a quarter turn away
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 1, 0).goal(1, 1, 2).build();
+        Solver.Result result = solve(index);
+        assertTrue(result.solved);
+        assertEquals(1, result.score);
+        assertEquals(1, result.actions.length - count(result.actions, Solver.ACTION_LAUNCH));
+        assertEquals(Solver.ACTION_LAUNCH, result.actions[result.actions.length - 1]);
+    }
+
+    @Test
+    public void twoTurns() {
+        // The goal is straight down, so the view must be turned upside down
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 2, 1).goal(1, 0, 1).build();
+        Solver.Result result = solve(index);
+        assertTrue(result.solved);
+        assertEquals(2, result.score);
+    }
+
+    @Test
+    public void launchTurnLaunch() {
+        // The ship lands on the block, and then a quarter turn launches it into the goal
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 0, 1).block(1, 2, 1).goal(1, 1, 2).build();
+        Solver.Result result = solve(index);
+        assertTrue(result.solved);
+        assertEquals(1, result.score);
+        assertEquals(2, count(result.actions, Solver.ACTION_LAUNCH));
+        assertEquals(Solver.ACTION_LAUNCH, result.actions[0]);
+        assertArrayEquals(new int[] {1, 1, 1}, result.cells[0]);
+    }
+
+    @Test
+    public void twoShips() {
+        ElementIndex index = new PuzzleBuilder(3)
+                .ship(0, 0, 1)
+                .ship(2, 0, 1)
+                .goal(0, 2, 1)
+                .goal(2, 2, 1)
+                .build();
+        Solver.Result result = solve(index);
+        assertTrue(result.solved);
+        assertEquals(0, result.score);
+    }
+
+    @Test
+    public void unsolvable() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 1, 1).build();
+        Solver.Result result = solve(index);
+        assertFalse(result.solved);
+        assertTrue(result.complete);
+        assertEquals(-1, result.score);
+    }
+
+    @Test
+    public void stateLimit() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 2, 1).goal(1, 0, 1).build();
+        Solver solver = new Solver(index, UP);
+        solver.setMaxStates(1);
+        Solver.Result result = solver.solve();
+        assertFalse(result.solved);
+        assertFalse(result.complete);
+    }
+
+    @Test
+    public void memoryLimit() {
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 2, 1).goal(1, 0, 1).build();
+        Solver solver = new Solver(index, UP);
+        solver.setMaxMemory(64);
+        Solver.Result result = solver.solve();
+        assertFalse(result.solved);
+        assertFalse(result.complete);
+        // The same solver finds the solution once it has the memory
+        solver.setMaxMemory(1024 * 1024);
+        result = solver.solve();
+        assertTrue(result.solved);
+        assertEquals(2, result.score);
+    }
+
+    @Test
+    public void solvedRepeatedly() {
+        // The search state is reused, and a second search from the first's end state is trivially solved
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 0, 1).block(1, 2, 1).goal(1, 1, 2).build();
+        Solver solver = new Solver(index, UP);
+        Solver.Result first = solver.solve();
+        Solver.Result second = solver.solve();
+        assertEquals(first.score, second.score);
+        assertArrayEquals(first.actions, second.actions);
+        int last = first.actions.length - 1;
+        Solver.Result end = solver.solve(first.orientations[last], first.cells[last]);
+        assertTrue(end.solved);
+        assertEquals(0, end.score);
+        assertEquals(0, end.actions.length);
+    }
+
+    @Test
+    public void symmetryDoesNotChangeScore() {
+        ElementIndex[] puzzles = {
+                new PuzzleBuilder(3).ship(1, 0, 1).goal(1, 2, 1).build(),
+                new PuzzleBuilder(3).ship(1, 1, 0).goal(1, 1, 2).build(),
+                new PuzzleBuilder(3).ship(1, 2, 1).goal(1, 0, 1).build(),
+                new PuzzleBuilder(3).ship(1, 0, 1).block(1, 2, 1).goal(1, 1, 2).build(),
+                new PuzzleBuilder(3).ship(1, 1, 1).build(),
+                // Symmetric under quarter turns about the vertical axis
+                new PuzzleBuilder(3)
+                        .block(0, 2, 1)
+                        .block(2, 2, 1)
+                        .block(1, 2, 0)
+                        .block(1, 2, 2)
+                        .goal(1, 0, 0)
+                        .ship(0, 1, 1)
+                        .build(),
+                // Symmetric under every rotation but with two ships
+                new PuzzleBuilder(3)
+                        .goal(1, 1, 1)
+                        .ship(1, 0, 1)
+                        .ship(1, 2, 1)
+                        .build(),
+        };
+        for (ElementIndex index : puzzles) {
+            Solver.Result with = solve(index, true);
+            Solver.Result without = solve(index, false);
+            assertEquals(without.solved, with.solved);
+            assertEquals(without.complete, with.complete);
+            assertEquals(without.score, with.score);
+            assertTrue(with.states <= without.states);
+        }
+    }
+
+    // Adds the cell and its images under the powers of rotation g, if they are all free
+    private static boolean addOrbit(Symmetry rotations, int g, int[] cell, Set<Integer> used, Set<Integer> orbit) {
+        int[] image = cell.clone();
+        orbit.clear();
+        do {
+            int c = image[0] * 9 + image[1] * 3 + image[2];
+            if (used.contains(c)) {
+                return false;
+            }
+            orbit.add(c);
+            rotations.transform(g, image, 0, image, 0);
+        } while (!(image[0] == cell[0] && image[1] == cell[1] && image[2] == cell[2]));
+        used.addAll(orbit);
+        return true;
+    }
+
+    // A random puzzle of size 3, symmetric under the rotation g, with one or two ships
+    private static ElementIndex generate(Random random, Symmetry rotations, int g) {
+        PuzzleBuilder builder = new PuzzleBuilder(3);
+        Set<Integer> used = new HashSet<>();
+        Set<Integer> orbit = new HashSet<>();
+        int[] cell = new int[3];
+        int blocks = random.nextInt(5);
+        int goals = 1 + random.nextInt(2);
+        for (int i = 0; i < blocks + goals; i++) {
+            cell[0] = random.nextInt(3);
+            cell[1] = random.nextInt(3);
+            cell[2] = random.nextInt(3);
+            if (addOrbit(rotations, g, cell, used, orbit)) {
+                for (int c : orbit) {
+                    if (i < blocks) {
+                        builder.block(c / 9, (c / 3) % 3, c % 3);
+                    } else {
+                        builder.goal(c / 9, (c / 3) % 3, c % 3);
+                    }
+                }
+            }
+        }
+        int ships = 1 + random.nextInt(2);
+        for (int i = 0; i < ships; i++) {
+            int c = random.nextInt(27);
+            if (used.add(c)) {
+                builder.ship(c / 9, (c / 3) % 3, c % 3);
+            }
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void symmetryDoesNotChangeScoreOfGeneratedPuzzles() {
+        Symmetry rotations = new Symmetry(new PuzzleBuilder(3).build().grid);
+        Random random = new Random(13);
+        int symmetric = 0;
+        int solved = 0;
+        for (int p = 0; p < 300; p++) {
+            // Mostly symmetric layouts, which the reduction changes, and some without symmetry
+            int g = p % 4 == 0 ? 0 : rotations.getElement(random.nextInt(rotations.getOrder()));
+            ElementIndex index = generate(random, rotations, g);
+            if (index.shipCount == 0) {
+                continue;
+            }
+            if (new Symmetry(index.grid).getOrder() > 1) {
+                symmetric++;
+            }
+            Solver.Result with = solve(index, true);
+            Solver.Result without = solve(index, false);
+            assertEquals("puzzle " + p, without.solved, with.solved);
+            assertEquals("puzzle " + p, without.complete, with.complete);
+            assertEquals("puzzle " + p, without.score, with.score);
+            assertTrue("puzzle " + p, with.states <= without.states);
+            if (with.solved) {
+                solved++;
+            }
+        }
+        // Enough of the puzzles are symmetric, and solvable, for the comparison to mean something
+        assertTrue("symmetric " + symmetric, symmetric > 100);
+        assertTrue("solved " + solved, solved > 50);
+    }
+
+    @Test
+    public void symmetryReducesStates() {
+        // The empty puzzle with a ship at the center is symmetric under every rotation, so every orientation is the same
+        ElementIndex index = new PuzzleBuilder(3).ship(1, 1, 1).build();
+        assertEquals(24, new Symmetry(index.grid).getOrder());
+        Solver.Result with = solve(index, true);
+        Solver.Result without = solve(index, false);
+        assertFalse(with.solved);
+        assertTrue(with.states < without.states);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import com.aletheiaware.perspectivepotv.android.game.ElementIndex;
+import com.aletheiaware.perspectivepotv.android.game.Orientation;
+import com.aletheiaware.perspectivepotv.android.game.PuzzleBuilder;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SymmetryTest {
+
+    @Test
+    public void emptyPuzzle() {
+        ElementIndex index = new PuzzleBuilder(3).build();
+        Symmetry symmetry = new Symmetry(index.grid);
+        assertEquals(Orientation.COUNT, symmetry.getOrder());
+        assertEquals(Orientation.IDENTITY, symmetry.getElement(0));
+    }
+
+    @Test
+    public void cornerBlock() {
+        // Only the rotations about the diagonal through the corner map it onto itself
+        ElementIndex index = new PuzzleBuilder(3).block(0, 0, 0).build();
+        assertEquals(3, new Symmetry(index.grid).getOrder());
+    }
+
+    @Test
+    public void faceBlock() {
+        // The quarter turns about the axis through the face
+        ElementIndex index = new PuzzleBuilder(3).block(1, 1, 0).build();
+        assertEquals(4, new Symmetry(index.grid).getOrder());
+    }
+
+    @Test
+    public void asymmetricPuzzle() {
+        ElementIndex index = new PuzzleBuilder(3).block(0, 0, 0).goal(1, 0, 0).build();
+        assertEquals(1, new Symmetry(index.grid).getOrder());
+    }
+
+    @Test
+    public void evenSize() {
+        ElementIndex index = new PuzzleBuilder(4).build();
+        Symmetry symmetry = new Symmetry(index.grid);
+        assertEquals(Orientation.COUNT, symmetry.getOrder());
+        int[] cell = new int[3];
+        // Every rotation of a cell stays inside the puzzle
+        for (int g = 0; g < Orientation.COUNT; g++) {
+            for (int c = 0; c < 64; c++) {
+                index.grid.getCell(c, cell);
+                symmetry.transform(g, cell, 0, cell, 0);
+                assertFalse(index.grid.isOutOfBounds(cell[0], cell[1], cell[2], 1));
+            }
+        }
+    }
+
+    @Test
+    public void portalsMustMapToPortals() {
+        ElementIndex symmetric = new PuzzleBuilder(3)
+                .portal(1, 1, 0, 1, 1, 2)
+                .portal(1, 1, 2, 1, 1, 0)
+                .build();
+        ElementIndex asymmetric = new PuzzleBuilder(3)
+                .portal(1, 1, 0, 1, 1, 2)
+                .portal(1, 1, 2, 0, 1, 1)
+                .build();
+        // Quarter turns about z, and half turns about x and y which swap the portals
+        assertEquals(8, new Symmetry(symmetric.grid).getOrder());
+        assertEquals(1, new Symmetry(asymmetric.grid).getOrder());
+    }
+
+    @Test
+    public void equivalentStatesShareCanonicalForm() {
+        ElementIndex index = new PuzzleBuilder(3).block(1, 1, 0).build();
+        StateEncoding encoding = new StateEncoding(index.grid, 1, 1);
+        Symmetry symmetry = new Symmetry(index.grid);
+        int words = encoding.getWords();
+        int[] cells = {0, 2, 1};
+        long[] hashes = new long[symmetry.getOrder()];
+        symmetry.hash(Orientation.IDENTITY, cells, 1, encoding, hashes);
+        int[] canonical = new int[3];
+        long[] key = new long[words];
+        long hash = hashes[symmetry.canonicalize(Orientation.IDENTITY, cells, 1, hashes, encoding, canonical, key, new long[words])];
+        for (int e = 0; e < symmetry.getOrder(); e++) {
+            int g = symmetry.getElement(e);
+            int[] image = new int[3];
+            symmetry.transform(g, cells, 0, image, 0);
+            int o = Orientation.multiply(Orientation.IDENTITY, Orientation.inverse(g));
+            // The hash of the image under each symmetry is the hash of that image
+            assertEquals(encoding.hash(o, image), hashes[e]);
+            long[] h = new long[symmetry.getOrder()];
+            symmetry.hash(o, image, 1, encoding, h);
+            int[] c = new int[3];
+            long[] k = new long[words];
+            assertEquals(hash, h[symmetry.canonicalize(o, image, 1, h, encoding, c, k, new long[words])]);
+            assertArrayEquals(canonical, c);
+            assertArrayEquals(key, k);
+        }
+    }
+
+    @Test
+    public void hashesFollowTurnsAndLaunches() {
+        ElementIndex index = new PuzzleBuilder(4).block(0, 0, 0).block(3, 3, 3).build();
+        StateEncoding encoding = new StateEncoding(index.grid, 2, 1);
+        Symmetry symmetry = new Symmetry(index.grid);
+        assertEquals(6, symmetry.getOrder());
+        Random random = new Random(7);
+        int orientation = Orientation.IDENTITY;
+        int[] cells = {1, 1, 1, 2, 1, 0};
+        long[] hashes = new long[symmetry.getOrder()];
+        symmetry.hash(orientation, cells, 2, encoding, hashes);
+        long[] expected = new long[symmetry.getOrder()];
+        for (int step = 0; step < 1000; step++) {
+            if (random.nextBoolean()) {
+                int turned = Orientation.turn(orientation, random.nextInt(Orientation.TURN_COUNT));
+                symmetry.turn(hashes, orientation, turned, encoding);
+                orientation = turned;
+            } else {
+                int[] moved = cells.clone();
+                moved[random.nextInt(moved.length)] = random.nextInt(5) - 1;// Sometimes outside the grid
+                symmetry.launch(hashes, cells, moved, 2, encoding);
+                cells = moved;
+            }
+            symmetry.hash(orientation, cells, 2, encoding, expected);
+            assertArrayEquals(expected, hashes);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.solver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TranspositionTableTest {
+
+    private static long[] key(long a, long b) {
+        return new long[] {a, b};
+    }
+
+    @Test
+    public void capacityFitsMemory() {
+        TranspositionTable table = new TranspositionTable(2, 1024);
+        int capacity = table.getCapacity();
+        assertEquals(0, capacity & (capacity - 1));
+        assertTrue(capacity * (2 * 8 + 4) <= 1024);
+    }
+
+    @Test
+    public void lowestScoreKept() {
+        TranspositionTable table = new TranspositionTable(2, 1024);
+        long[] k = key(1, 2);
+        assertEquals(-1, table.get(7, k));
+        assertTrue(table.update(7, k, 5));
+        assertEquals(5, table.get(7, k));
+        assertFalse(table.update(7, k, 5));
+        assertFalse(table.update(7, k, 6));
+        assertEquals(5, table.get(7, k));
+        assertTrue(table.update(7, k, 3));
+        assertEquals(3, table.get(7, k));
+        assertEquals(1, table.getSize());
+    }
+
+    @Test
+    public void collidingHashes() {
+        TranspositionTable table = new TranspositionTable(2, 1024);
+        // Same hash, different states
+        assertTrue(table.update(7, key(1, 2), 1));
+        assertTrue(table.update(7, key(3, 4), 2));
+        assertEquals(1, table.get(7, key(1, 2)));
+        assertEquals(2, table.get(7, key(3, 4)));
+        assertEquals(2, table.getSize());
+    }
+
+    @Test
+    public void evictsLowestScore() {
+        // The smallest table, so every probe of a hash collides
+        TranspositionTable table = new TranspositionTable(1, 0);
+        int capacity = table.getCapacity();
+        for (int i = 0; i < capacity; i++) {
+            assertTrue(table.update(0, new long[] {i}, i + 1));
+        }
+        assertEquals(0, table.getEvictions());
+        assertTrue(table.update(0, new long[] {capacity}, capacity + 1));
+        assertEquals(1, table.getEvictions());
+        // The state with the lowest score made way
+        assertEquals(-1, table.get(0, new long[] {0}));
+        assertEquals(capacity + 1, table.get(0, new long[] {capacity}));
+        // An evicted state is new again, so is never skipped
+        assertTrue(table.update(0, new long[] {0}, 1));
+    }
+
+    @Test
+    public void clear() {
+        TranspositionTable table = new TranspositionTable(2, 1024);
+        table.update(7, key(1, 2), 1);
+        table.clear();
+        assertEquals(0, table.getSize());
+        assertEquals(-1, table.get(7, key(1, 2)));
+        assertTrue(table.update(7, key(1, 2), 4));
+    }
+}
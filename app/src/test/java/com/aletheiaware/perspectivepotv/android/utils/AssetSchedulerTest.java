@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AssetSchedulerTest {
+
+    private static final long TIMEOUT = 5;
+
+    // Occupies the only worker until released
+    private static AssetScheduler.Task<Void> block(AssetScheduler scheduler, Object owner, final CountDownLatch started, final CountDownLatch release) {
+        return scheduler.submit(owner, AssetScheduler.LANE_VISIBLE, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        });
+    }
+
+    private static AssetScheduler.Task<Void> record(AssetScheduler scheduler, Object owner, int lane, final List<String> order, final String name) {
+        return scheduler.submit(owner, lane, new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+            }
+        });
+    }
+
+    private static <T> AssetScheduler.Task<T> value(AssetScheduler scheduler, final T value) {
+        return scheduler.submit(null, AssetScheduler.LANE_VISIBLE, new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return value;
+            }
+        });
+    }
+
+    private static AssetScheduler.Task<Void> failure(AssetScheduler scheduler, final String message) {
+        return scheduler.submit(null, AssetScheduler.LANE_VISIBLE, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                throw new IOException(message);
+            }
+        });
+    }
+
+    @Test
+    public void lanesRunInOrder() throws Exception {
+        AssetScheduler scheduler = new AssetScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        block(scheduler, null, started, release);
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        record(scheduler, null, AssetScheduler.LANE_PREFETCH, order, "prefetch");
+        record(scheduler, null, AssetScheduler.LANE_SOUND, order, "sound");
+        record(scheduler, null, AssetScheduler.LANE_VISIBLE, order, "visible 1");
+        AssetScheduler.Task<Void> last = record(scheduler, null, AssetScheduler.LANE_VISIBLE, order, "visible 2");
+        AssetScheduler.Task<Void> prefetch = record(scheduler, null, AssetScheduler.LANE_PREFETCH, order, "prefetch 2");
+        release.countDown();
+        prefetch.get(TIMEOUT, TimeUnit.SECONDS);
+        assertTrue(last.isDone());
+        assertEquals(Arrays.asList("visible 1", "visible 2", "sound", "prefetch", "prefetch 2"), order);
+    }
+
+    @Test
+    public void cancelDropsTasksOfOwner() throws Exception {
+        AssetScheduler scheduler = new AssetScheduler(1);
+        Object owner = new Object();
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        AssetScheduler.Task<Void> running = scheduler.submit(owner, AssetScheduler.LANE_VISIBLE, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT));
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                return null;
+            }
+        });
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        AssetScheduler.Task<Void> pending = record(scheduler, owner, AssetScheduler.LANE_VISIBLE, order, "owned");
+        AssetScheduler.Task<Void> unowned = record(scheduler, null, AssetScheduler.LANE_PREFETCH, order, "unowned");
+
+        scheduler.cancel(owner);
+        assertTrue(running.isCancelled());
+        assertTrue(pending.isCancelled());
+        unowned.get(TIMEOUT, TimeUnit.SECONDS);
+        assertTrue(interrupted.get());
+        assertEquals(Collections.singletonList("unowned"), order);
+    }
+
+    @Test
+    public void submitAfterWaitsForDependency() throws Exception {
+        AssetScheduler scheduler = new AssetScheduler(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AssetScheduler.Task<Void> dependency = block(scheduler, null, started, release);
+        final CountDownLatch done = new CountDownLatch(1);
+        AssetScheduler.Task<String> task = scheduler.submitAfter(dependency, null, AssetScheduler.LANE_VISIBLE, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "after";
+            }
+        });
+        task.addListener(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+        assertFalse(task.isDone());
+        release.countDown();
+        assertEquals("after", task.get(TIMEOUT, TimeUnit.SECONDS));
+        // Listeners run after waiters are woken
+        assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submitAfterFailedDependencyIsCancelled() throws Exception {
+        AssetScheduler scheduler = new AssetScheduler(1);
+        final AtomicBoolean ran = new AtomicBoolean();
+        AssetScheduler.Task<Void> task = scheduler.submitAfter(failure(scheduler, "Unreadable"), null, AssetScheduler.LANE_VISIBLE, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                ran.set(true);
+                return null;
+            }
+        });
+        try {
+            task.get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Expected CancellationException");
+        } catch (CancellationException e) {
+            // Expected
+        }
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void whenAllCompletesAfterEveryTask() throws Exception {
+        AssetScheduler scheduler = new AssetScheduler(2);
+        List<AssetScheduler.Task<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(value(scheduler, "t" + i));
+        }
+        scheduler.whenAll(null, tasks).get(TIMEOUT, TimeUnit.SECONDS);
+        for (AssetScheduler.Task<String> t : tasks) {
+            assertTrue(t.isDone());
+        }
+
+        List<AssetScheduler.Task<String>> none = Collections.emptyList();
+        assertTrue(scheduler.whenAll(null, none).isDone());
+    }
+
+    @Test
+    public void whenAllReportsFailure() throws Exception {
+        AssetScheduler scheduler = new AssetScheduler(2);
+        List<AssetScheduler.Task<?>> tasks = new ArrayList<>();
+        tasks.add(value(scheduler, "a"));
+        tasks.add(failure(scheduler, "Unreadable"));
+        tasks.add(value(scheduler, "b"));
+        try {
+            scheduler.whenAll(null, tasks).get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertEquals("Unreadable", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.joy.JoyProto.Mesh;
+import com.aletheiaware.perspectivepotv.android.scene.InterleavedMesh;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MeshCacheTest {
+
+    private static final long INSTALLED = 1234;
+    private static final long SIZE = 567;
+
+    private File directory;
+    private File file;
+
+    // A unit square of two triangles, sharing two of their corners
+    private static Mesh createSquare() {
+        float[][] corners = {{0, 0}, {1, 0}, {1, 1}, {0, 0}, {1, 1}, {0, 1}};
+        Mesh.Builder builder = Mesh.newBuilder();
+        for (float[] c : corners) {
+            builder.addVertex(c[0]).addVertex(c[1]).addVertex(0);
+            builder.addNormal(0).addNormal(0).addNormal(1);
+            builder.addTexCoord(c[0]).addTexCoord(c[1]);
+        }
+        return builder.build();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("mesh").toFile();
+        file = new File(directory, "square.bin");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                assertTrue(f.delete());
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void interleavesAttributesOfEachVertex() throws IOException {
+        ByteBuffer buffer = MeshCache.interleave(createSquare());
+        assertEquals(6 * InterleavedMesh.STRIDE, buffer.remaining());
+        // The third vertex; position, normal, then texture coordinate
+        buffer.position(2 * InterleavedMesh.STRIDE);
+        float[] expected = {1, 1, 0, 0, 0, 1, 1, 1};
+        for (float e : expected) {
+            assertEquals(e, buffer.getFloat(), 0);
+        }
+    }
+
+    @Test
+    public void mismatchedAttributesAreRejected() {
+        Mesh mesh = Mesh.newBuilder()
+                .addVertex(0).addVertex(0).addVertex(0)
+                .addNormal(0).addNormal(0).addNormal(1)
+                .build();
+        try {
+            MeshCache.interleave(mesh);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Mismatched mesh attributes", e.getMessage());
+        }
+    }
+
+    @Test
+    public void convertWeldsSharedVertices() throws IOException {
+        ByteBuffer[] converted = MeshCache.convert(createSquare());
+        assertEquals(4 * InterleavedMesh.STRIDE, converted[0].remaining());
+        assertEquals(6 * 2, converted[1].remaining());
+    }
+
+    @Test
+    public void cachedMeshIsMapped() throws IOException {
+        MeshCache cache = new MeshCache(directory, INSTALLED);
+        cache.write(file, SIZE, MeshCache.convert(createSquare()));
+        InterleavedMesh mesh = cache.map(file, SIZE);
+        assertEquals(4, mesh.getVertexCount());
+        assertEquals(6, mesh.getIndexCount());
+    }
+
+    @Test
+    public void staleCacheIsIgnored() throws IOException {
+        MeshCache cache = new MeshCache(directory, INSTALLED);
+        assertNull(cache.map(file, SIZE));
+        cache.write(file, SIZE, MeshCache.convert(createSquare()));
+        // The asset changed size
+        assertNull(cache.map(file, SIZE + 1));
+        // The app was updated
+        assertNull(new MeshCache(directory, INSTALLED + 1).map(file, SIZE));
+        // The file was cut short
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 1);
+        }
+        assertNull(cache.map(file, SIZE));
+    }
+}
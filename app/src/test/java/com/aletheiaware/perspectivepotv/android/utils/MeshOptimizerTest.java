@@ -0,0 +1,204 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspectivepotv.android.scene.InterleavedMesh;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MeshOptimizerTest {
+
+    // A grid of quads in the z = 0 plane, each quad two triangles of three unshared vertices
+    private static float[][] createGrid(int n) {
+        List<float[]> vertices = new ArrayList<>();
+        for (int x = 0; x < n; x++) {
+            for (int y = 0; y < n; y++) {
+                int[][] corners = {{x, y}, {x + 1, y}, {x + 1, y + 1}, {x, y}, {x + 1, y + 1}, {x, y + 1}};
+                for (int[] c : corners) {
+                    vertices.add(createVertex(c[0], c[1], 1));
+                }
+            }
+        }
+        return vertices.toArray(new float[0][]);
+    }
+
+    private static float[] createVertex(float x, float y, float nz) {
+        return new float[] {x, y, 0, 0, 0, nz, x / 10f, y / 10f};
+    }
+
+    private static ByteBuffer toBuffer(float[][] vertices) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(vertices.length * InterleavedMesh.STRIDE);
+        buffer.order(ByteOrder.nativeOrder());
+        for (float[] v : vertices) {
+            for (float f : v) {
+                buffer.putFloat(f);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String toString(float[] vertex) {
+        StringBuilder sb = new StringBuilder("(");
+        for (float f : vertex) {
+            sb.append(f).append(' ');
+        }
+        return sb.append(')').toString();
+    }
+
+    // Each triangle as a string of its vertices in winding order, sorted
+    private static List<String> getTriangles(float[][] vertices, int[] indices) {
+        List<String> triangles = new ArrayList<>();
+        for (int t = 0; t < indices.length; t += 3) {
+            triangles.add(toString(vertices[indices[t]]) + toString(vertices[indices[t + 1]]) + toString(vertices[indices[t + 2]]));
+        }
+        Collections.sort(triangles);
+        return triangles;
+    }
+
+    private static int[] getSequence(int count) {
+        int[] sequence = new int[count];
+        for (int i = 0; i < count; i++) {
+            sequence[i] = i;
+        }
+        return sequence;
+    }
+
+    // Average number of vertices transformed per triangle, with a FIFO cache of the given size
+    private static float getCacheMissRatio(int[] indices, int cacheSize) {
+        List<Integer> cache = new ArrayList<>();
+        int misses = 0;
+        for (int i : indices) {
+            if (!cache.contains(i)) {
+                misses++;
+                cache.add(i);
+                if (cache.size() > cacheSize) {
+                    cache.remove(0);
+                }
+            }
+        }
+        return misses / (indices.length / 3f);
+    }
+
+    @Test
+    public void weldQuad() {
+        float[][] vertices = createGrid(1);
+        int[] indices = new int[vertices.length];
+        int[] first = MeshOptimizer.weld(toBuffer(vertices), vertices.length, indices);
+        assertEquals(4, first.length);
+        assertEquals(indices[0], indices[3]);
+        assertEquals(indices[2], indices[4]);
+        for (int v = 0; v < vertices.length; v++) {
+            assertEquals(toString(vertices[v]), toString(vertices[first[indices[v]]]));
+        }
+    }
+
+    @Test
+    public void weldKeepsDifferentAttributes() {
+        // Same position, different normal
+        float[][] vertices = {createVertex(0, 0, 1), createVertex(0, 0, -1), createVertex(0, 0, 1)};
+        int[] indices = new int[vertices.length];
+        int[] first = MeshOptimizer.weld(toBuffer(vertices), vertices.length, indices);
+        assertEquals(2, first.length);
+        assertEquals(indices[0], indices[2]);
+        assertTrue(indices[0] != indices[1]);
+    }
+
+    @Test
+    public void weldNothing() {
+        int[] first = MeshOptimizer.weld(toBuffer(new float[0][]), 0, new int[0]);
+        assertEquals(0, first.length);
+    }
+
+    @Test
+    public void roundTripKeepsEveryTriangle() {
+        float[][] vertices = createGrid(12);
+        List<String> expected = getTriangles(vertices, getSequence(vertices.length));
+
+        int[] indices = new int[vertices.length];
+        int[] first = MeshOptimizer.weld(toBuffer(vertices), vertices.length, indices);
+        assertEquals(13 * 13, first.length);
+        MeshOptimizer.optimize(indices, first.length);
+        int[] order = MeshOptimizer.compact(indices, first.length);
+        assertEquals(first.length, order.length);
+
+        // Rebuild the vertices in their new order, as the cache stores them
+        float[][] compacted = new float[order.length][];
+        for (int v = 0; v < order.length; v++) {
+            compacted[v] = vertices[first[order[v]]];
+        }
+        assertEquals(expected, getTriangles(compacted, indices));
+
+        // Vertices are numbered in the order they are first used
+        int next = 0;
+        for (int i : indices) {
+            assertTrue(i <= next);
+            if (i == next) {
+                next++;
+            }
+        }
+        assertEquals(order.length, next);
+    }
+
+    @Test
+    public void optimizeImprovesCacheUse() {
+        float[][] vertices = createGrid(24);
+        int[] indices = new int[vertices.length];
+        int[] first = MeshOptimizer.weld(toBuffer(vertices), vertices.length, indices);
+        // Shuffle the triangles, the worst case for the cache
+        int triangleCount = indices.length / 3;
+        List<Integer> triangles = new ArrayList<>();
+        for (int t = 0; t < triangleCount; t++) {
+            triangles.add(t);
+        }
+        Collections.shuffle(triangles, new Random(42));
+        int[] shuffled = new int[indices.length];
+        for (int t = 0; t < triangleCount; t++) {
+            System.arraycopy(indices, triangles.get(t) * 3, shuffled, t * 3, 3);
+        }
+        float before = getCacheMissRatio(shuffled, 16);
+        int[] optimized = shuffled.clone();
+        MeshOptimizer.optimize(optimized, first.length);
+        float after = getCacheMissRatio(optimized, 16);
+        assertTrue("before " + before + " after " + after, after < before);
+        // A regular grid shares each vertex between six triangles, so well ordered triangles approach one miss each
+        assertTrue("after " + after, after < 1.0f);
+    }
+
+    @Test
+    public void compactSkipsUnusedVertices() {
+        int[] indices = {4, 2, 0, 2, 4, 6};
+        int[] order = MeshOptimizer.compact(indices, 7);
+        assertEquals(4, order.length);
+        assertEquals(4, order[0]);
+        assertEquals(2, order[1]);
+        assertEquals(0, order[2]);
+        assertEquals(6, order[3]);
+        assertEquals("[0, 1, 2, 1, 0, 3]", Arrays.toString(indices));
+    }
+}
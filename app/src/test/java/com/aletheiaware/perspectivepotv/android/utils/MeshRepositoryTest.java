@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import android.content.res.AssetManager;
+
+import com.aletheiaware.joy.android.scene.GLScene;
+import com.aletheiaware.perspectivepotv.android.scene.InterleavedMesh;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MeshRepositoryTest {
+
+    private static final long TIMEOUT = 5;
+
+    // Counts the meshes loaded, failing those named once each
+    private static class FakeMeshCache extends MeshCache {
+        final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        final Set<String> failing = new HashSet<>();
+        volatile CountDownLatch release = new CountDownLatch(0);
+
+        FakeMeshCache() {
+            super(null, 0);
+        }
+
+        @Override
+        public InterleavedMesh get(AssetManager assets, String name) throws IOException {
+            loads.putIfAbsent(name, new AtomicInteger());
+            loads.get(name).incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized (failing) {
+                if (failing.remove(name)) {
+                    throw new IOException("Unreadable " + name);
+                }
+            }
+            return new InterleavedMesh(ByteBuffer.allocateDirect(0), 0);
+        }
+
+        int getLoads(String name) {
+            AtomicInteger count = loads.get(name);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    private GLScene scene;
+    private FakeMeshCache cache;
+    private MeshRepository meshes;
+
+    @Before
+    public void setUp() {
+        scene = new GLScene();
+        cache = new FakeMeshCache();
+        meshes = new MeshRepository(scene, null, cache);
+    }
+
+    @After
+    public void tearDown() {
+        AssetScheduler.getInstance().cancel(scene);
+    }
+
+    @Test
+    public void requestsShareOneLoad() throws Exception {
+        assertEquals(MeshRepository.STATE_NONE, meshes.getState("a"));
+        assertNull(meshes.getMesh("a"));
+        AssetScheduler.Task<InterleavedMesh> task = meshes.load("a");
+        assertSame(task, meshes.load("a"));
+        InterleavedMesh mesh = task.get(TIMEOUT, TimeUnit.SECONDS);
+        assertSame(task, meshes.load("a"));
+        assertSame(mesh, meshes.getMesh("a"));
+        assertEquals(MeshRepository.STATE_READY, meshes.getState("a"));
+        assertEquals(1, cache.getLoads("a"));
+    }
+
+    @Test
+    public void failedMeshIsLoadedAgain() throws Exception {
+        cache.failing.add("a");
+        AssetScheduler.Task<InterleavedMesh> task = meshes.load("a");
+        try {
+            task.get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertEquals("Unreadable a", e.getCause().getMessage());
+        }
+        assertEquals(MeshRepository.STATE_FAILED, meshes.getState("a"));
+        assertNull(meshes.getMesh("a"));
+
+        AssetScheduler.Task<InterleavedMesh> retry = meshes.load("a");
+        assertTrue(retry != task);
+        assertSame(retry.get(TIMEOUT, TimeUnit.SECONDS), meshes.getMesh("a"));
+        assertEquals(2, cache.getLoads("a"));
+    }
+
+    @Test
+    public void awaitAllFailsIfAnyMeshFails() throws Exception {
+        meshes.awaitAll(Arrays.asList("a", "b")).get(TIMEOUT, TimeUnit.SECONDS);
+        assertEquals(MeshRepository.STATE_READY, meshes.getState("b"));
+
+        cache.failing.add("d");
+        try {
+            meshes.awaitAll(Arrays.asList("a", "c", "d")).get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertEquals("Unreadable d", e.getCause().getMessage());
+        }
+        // Meshes already loaded aren't loaded again
+        assertEquals(1, cache.getLoads("a"));
+        assertEquals(MeshRepository.STATE_READY, meshes.getState("c"));
+    }
+
+    @Test
+    public void cancellingSceneCancelsMeshes() throws Exception {
+        cache.release = new CountDownLatch(1);
+        AssetScheduler.Task<InterleavedMesh> task = meshes.load("a");
+        AssetScheduler.getInstance().cancel(scene);
+        try {
+            task.get(TIMEOUT, TimeUnit.SECONDS);
+            fail("Expected CancellationException");
+        } catch (CancellationException e) {
+            // Expected
+        }
+        assertEquals(MeshRepository.STATE_FAILED, meshes.getState("a"));
+
+        cache.release.countDown();
+        assertTrue(meshes.load("a").get(TIMEOUT, TimeUnit.SECONDS) != null);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderedBatcherTest {
+
+    // Records each batch published
+    private static class Recorder implements OrderedBatcher.Callback<String> {
+        final List<List<String>> batches = new ArrayList<>();
+
+        @Override
+        public void publish(List<String> batch) {
+            batches.add(batch);
+        }
+    }
+
+    @Test
+    public void publishesInOrder() {
+        Recorder recorder = new Recorder();
+        OrderedBatcher<String> batcher = new OrderedBatcher<>(4, 4, recorder);
+        batcher.complete(2, "c");
+        batcher.complete(1, "b");
+        // Held back until the first completes
+        assertEquals(0, recorder.batches.size());
+        batcher.complete(0, "a");
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), recorder.batches);
+        batcher.complete(3, "d");
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Collections.singletonList("d")), recorder.batches);
+    }
+
+    @Test
+    public void limitsBatchSize() {
+        Recorder recorder = new Recorder();
+        OrderedBatcher<String> batcher = new OrderedBatcher<>(5, 2, recorder);
+        for (int i = 4; i >= 0; i--) {
+            batcher.complete(i, String.valueOf(i));
+        }
+        assertEquals(Arrays.asList(Arrays.asList("0", "1"), Arrays.asList("2", "3"), Collections.singletonList("4")), recorder.batches);
+    }
+
+    @Test
+    public void skipsFailures() {
+        Recorder recorder = new Recorder();
+        OrderedBatcher<String> batcher = new OrderedBatcher<>(3, 4, recorder);
+        batcher.complete(0, null);
+        assertEquals(0, recorder.batches.size());
+        batcher.complete(2, "c");
+        batcher.complete(1, null);
+        assertEquals(Collections.singletonList(Collections.singletonList("c")), recorder.batches);
+    }
+}
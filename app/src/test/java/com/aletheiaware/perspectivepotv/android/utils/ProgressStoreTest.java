@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspective.PerspectiveProto.Solution;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProgressStoreTest {
+
+    private static final WorldSummary WORLD = new WorldSummary("w", "World", new int[] {2, 3}, new String[] {"p1", "p2"});
+
+    private File directory;
+    private File log;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("progress").toFile();
+        log = new File(directory, "progress.log");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                assertTrue(f.delete());
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    private static Solution createSolution(int score) {
+        return Solution.newBuilder().setScore(score).build();
+    }
+
+    // Appends a frame holding a single solution record whose solution is the given bytes
+    private void appendSolution(String world, String puzzle, byte[] solution) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream p = new DataOutputStream(payload);
+        p.writeByte(1);
+        p.writeUTF(world);
+        p.writeUTF(puzzle);
+        p.writeInt(solution.length);
+        p.write(solution);
+        p.flush();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream b = new DataOutputStream(body);
+        b.writeInt(payload.size());
+        payload.writeTo(b);
+        b.flush();
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray(), 0, body.size());
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(log, true))) {
+            out.writeInt(1);
+            out.writeInt(body.size());
+            out.writeInt((int) crc.getValue());
+            body.writeTo(out);
+        }
+    }
+
+    @Test
+    public void reopen() throws IOException {
+        ProgressStore store = new ProgressStore(directory);
+        assertTrue(store.put(WORLD, 1, createSolution(4)));
+        assertFalse(store.put(WORLD, 1, createSolution(5)));
+        assertTrue(store.put(WORLD, 1, createSolution(2)));
+
+        ProgressStore reopened = new ProgressStore(directory);
+        assertEquals(2, reopened.get("w", "p1").getScore());
+        assertNull(reopened.get("w", "p2"));
+        WorldProgress progress = reopened.getProgress(WORLD);
+        assertEquals(3, progress.getStars(0));
+        assertEquals(-1, progress.getStars(1));
+        assertFalse(progress.isCompleted());
+    }
+
+    @Test
+    public void readingProgressDoesNotWrite() throws IOException {
+        ProgressStore store = new ProgressStore(directory);
+        store.put(WORLD, 1, createSolution(2));
+        long length = log.length();
+        new ProgressStore(directory).getProgress(WORLD);
+        assertEquals(length, log.length());
+    }
+
+    @Test
+    public void tornCommitIsDroppedWhole() throws IOException {
+        ProgressStore store = new ProgressStore(directory);
+        store.put(WORLD, 1, createSolution(2));
+        long length = log.length();
+        store.put(WORLD, 2, createSolution(3));
+        // Cut the last commit short, keeping its solution record but not its progress record
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(log.length() - 3);
+        }
+
+        ProgressStore reopened = new ProgressStore(directory);
+        assertEquals(length, log.length());
+        assertEquals(2, reopened.get("w", "p1").getScore());
+        assertNull(reopened.get("w", "p2"));
+        assertEquals(-1, reopened.getProgress(WORLD).getStars(1));
+
+        // The next commit follows the last complete one
+        reopened.put(WORLD, 2, createSolution(3));
+        WorldProgress progress = new ProgressStore(directory).getProgress(WORLD);
+        assertEquals(6, progress.getTotal());
+        assertTrue(progress.isCompleted());
+    }
+
+    @Test
+    public void corruptCommitIsDropped() throws IOException {
+        ProgressStore store = new ProgressStore(directory);
+        store.put(WORLD, 1, createSolution(2));
+        store.put(WORLD, 2, createSolution(3));
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.seek(log.length() - 1);
+            int b = raf.read();
+            raf.seek(log.length() - 1);
+            raf.write(b ^ 0xFF);
+        }
+
+        ProgressStore reopened = new ProgressStore(directory);
+        assertEquals(2, reopened.get("w", "p1").getScore());
+        assertNull(reopened.get("w", "p2"));
+    }
+
+    @Test
+    public void unreadableRecordKeepsEarlierCommits() throws IOException {
+        ProgressStore store = new ProgressStore(directory);
+        store.put(WORLD, 1, createSolution(2));
+        long length = log.length();
+        // A complete frame with a valid checksum, but a solution which doesn't parse
+        appendSolution("w", "p2", new byte[] {-1});
+
+        ProgressStore reopened = new ProgressStore(directory);
+        assertFalse(new File(directory, "progress.log.bad").exists());
+        assertEquals(length, log.length());
+        assertEquals(2, reopened.get("w", "p1").getScore());
+        assertNull(reopened.get("w", "p2"));
+        assertEquals(3, reopened.getProgress(WORLD).getTotal());
+    }
+
+    @Test
+    public void solutionWithoutProgressIsRecounted() throws IOException {
+        ProgressStore store = new ProgressStore(directory);
+        store.put(WORLD, 1, createSolution(2));
+        assertEquals(3, store.getProgress(WORLD).getTotal());
+        // A solution committed without the progress it earns
+        appendSolution("w", "p2", createSolution(6).toByteArray());
+
+        WorldProgress progress = new ProgressStore(directory).getProgress(WORLD);
+        assertEquals(3, progress.getStars(0));
+        assertEquals(2, progress.getStars(1));
+        assertEquals(5, progress.getTotal());
+        assertTrue(progress.isCompleted());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspective.PerspectiveProto.Puzzle;
+import com.aletheiaware.perspective.PerspectiveProto.World;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PuzzleHashCacheTest {
+
+    private File directory;
+    private File file;
+
+    // Counts the worlds loaded, each with the given puzzles
+    private static class CountingLoader implements WorldCache.Loader {
+        final Puzzle[] puzzles;
+        int loads;
+
+        CountingLoader(Puzzle... puzzles) {
+            this.puzzles = puzzles;
+        }
+
+        @Override
+        public World load(String name) {
+            loads++;
+            World.Builder builder = World.newBuilder().setName(name);
+            for (Puzzle p : puzzles) {
+                builder.addPuzzle(p);
+            }
+            return builder.build();
+        }
+    }
+
+    private static Puzzle createPuzzle(int target) {
+        return Puzzle.newBuilder().setTarget(target).build();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("hashes").toFile();
+        file = new File(directory, "puzzle-hashes");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                assertTrue(f.delete());
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void hashesOncePerAsset() throws Exception {
+        Puzzle a = createPuzzle(1);
+        Puzzle b = createPuzzle(2);
+        CountingLoader loader = new CountingLoader(a, b);
+        String[] expected = {PerspectiveUtils.getHash(a.toByteArray()), PerspectiveUtils.getHash(b.toByteArray())};
+
+        PuzzleHashCache cache = new PuzzleHashCache(file, 5);
+        assertArrayEquals(expected, cache.getHashes("w", 100, loader));
+        assertArrayEquals(expected, cache.getHashes("w", 100, loader));
+        assertEquals(1, loader.loads);
+
+        // Another process finds the hashes without loading the world
+        assertArrayEquals(expected, new PuzzleHashCache(file, 5).getHashes("w", 100, loader));
+        assertEquals(1, loader.loads);
+    }
+
+    @Test
+    public void changedAssetIsHashedAgain() throws IOException {
+        CountingLoader loader = new CountingLoader(createPuzzle(1));
+        new PuzzleHashCache(file, 5).getHashes("w", 100, loader);
+
+        // A different length
+        PuzzleHashCache cache = new PuzzleHashCache(file, 5);
+        cache.getHashes("w", 101, loader);
+        assertEquals(2, loader.loads);
+
+        // The same length, but a new version of the app
+        new PuzzleHashCache(file, 6).getHashes("w", 101, loader);
+        assertEquals(3, loader.loads);
+
+        // Other worlds are hashed separately
+        new PuzzleHashCache(file, 6).getHashes("x", 101, loader);
+        assertEquals(4, loader.loads);
+        new PuzzleHashCache(file, 6).getHashes("w", 101, loader);
+        assertEquals(4, loader.loads);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspective.PerspectiveProto.World;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WorldCacheTest {
+
+    // Each world is estimated at four times its 16 byte serialized size
+    private static final long ONE_WORLD = 64;
+
+    // Counts the worlds loaded
+    private static class CountingLoader implements WorldCache.Loader {
+        final AtomicInteger loads = new AtomicInteger();
+
+        @Override
+        public World load(String name) throws IOException {
+            loads.incrementAndGet();
+            return World.newBuilder().setName(name).build();
+        }
+    }
+
+    @Test
+    public void loadsOnce() throws IOException {
+        WorldCache cache = new WorldCache(ONE_WORLD * 2);
+        CountingLoader loader = new CountingLoader();
+        World a = cache.get("a", loader);
+        assertSame(a, cache.get("a", loader));
+        assertEquals("a", a.getName());
+        assertEquals(1, loader.loads.get());
+    }
+
+    @Test
+    public void evictedWorldIsReusedUntilCollected() throws IOException {
+        WorldCache cache = new WorldCache(ONE_WORLD);
+        CountingLoader loader = new CountingLoader();
+        World a = cache.get("a", loader);
+        cache.get("b", loader);
+        // The first world no longer fits, but is still strongly reachable here so it can't be collected
+        assertSame(a, cache.get("a", loader));
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void clearForgetsWorlds() throws IOException {
+        WorldCache cache = new WorldCache(ONE_WORLD * 2);
+        CountingLoader loader = new CountingLoader();
+        cache.get("a", loader);
+        cache.clear();
+        cache.get("a", loader);
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void failedLoadIsRetried() throws IOException {
+        WorldCache cache = new WorldCache(ONE_WORLD * 2);
+        final AtomicInteger loads = new AtomicInteger();
+        WorldCache.Loader loader = new WorldCache.Loader() {
+            @Override
+            public World load(String name) throws IOException {
+                if (loads.incrementAndGet() == 1) {
+                    throw new IOException("Unreadable");
+                }
+                return World.newBuilder().setName(name).build();
+            }
+        };
+        try {
+            cache.get("a", loader);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Unreadable", e.getMessage());
+        }
+        assertEquals("a", cache.get("a", loader).getName());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void concurrentRequestsShareOneLoad() throws Exception {
+        final WorldCache cache = new WorldCache(ONE_WORLD * 2);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final WorldCache.Loader loader = new WorldCache.Loader() {
+            @Override
+            public World load(String name) throws IOException {
+                loads.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return World.newBuilder().setName(name).build();
+            }
+        };
+        final World[] results = new World[2];
+        Thread first = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    results[0] = cache.get("a", loader);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread second = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    results[1] = cache.get("a", loader);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        second.start();
+        release.countDown();
+        first.join(5000);
+        second.join(5000);
+        assertEquals(1, loads.get());
+        assertSame(results[0], results[1]);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Aletheia Ware LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.aletheiaware.perspectivepotv.android.utils;
+
+import com.aletheiaware.perspective.PerspectiveProto.Puzzle;
+import com.aletheiaware.perspective.PerspectiveProto.World;
+import com.aletheiaware.perspective.utils.PerspectiveUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class WorldSummaryTest {
+
+    @Test
+    public void summarizesWorld() throws Exception {
+        Puzzle a = Puzzle.newBuilder().setTarget(2).build();
+        Puzzle b = Puzzle.newBuilder().setTarget(5).build();
+        World world = World.newBuilder().setName("w").setTitle("World").addPuzzle(a).addPuzzle(b).build();
+
+        WorldSummary summary = WorldSummary.of(world);
+        assertEquals("w", summary.getName());
+        assertEquals("World", summary.getTitle());
+        assertEquals(2, summary.getPuzzleCount());
+        assertArrayEquals(new int[] {2, 5}, summary.targets);
+        assertArrayEquals(new String[] {PerspectiveUtils.getHash(a.toByteArray()), PerspectiveUtils.getHash(b.toByteArray())}, summary.hashes);
+
+        // Known hashes are used as given
+        String[] hashes = {"h1", "h2"};
+        assertArrayEquals(hashes, WorldSummary.of(world, hashes).hashes);
+    }
+
+    @Test
+    public void indexRoundTrip() throws IOException {
+        WorldSummary w = new WorldSummary("w", "World", new int[] {2, 3}, new String[] {"p1", "p2"});
+        WorldSummary e = new WorldSummary("e", "Empty", new int[0], new String[0]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WorldSummary.writeIndex(Arrays.asList(w, e), out);
+
+        Map<String, WorldSummary> index = WorldSummary.readIndex(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, index.size());
+        WorldSummary read = index.get("w");
+        assertEquals("World", read.getTitle());
+        assertArrayEquals(w.targets, read.targets);
+        assertArrayEquals(w.hashes, read.hashes);
+        assertEquals(0, index.get("e").getPuzzleCount());
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        try {
+            WorldSummary.readIndex(new ByteArrayInputStream(new byte[] {0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 0}));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Not a world index", e.getMessage());
+        }
+    }
+}